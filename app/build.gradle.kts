@@ -53,15 +53,21 @@ jmh {
     // JVM args for the forked benchmark process
     jvmArgs.set(listOf(
         "--add-exports=java.base/jdk.internal.vm.annotation=ALL-UNNAMED",
+        "--add-modules=jdk.incubator.vector",
+        "--enable-preview",
+        "--enable-native-access=ALL-UNNAMED",
         "-XX:-RestrictContended"
     ))
 }
 
 tasks.withType<JavaCompile>().configureEach {
-    if (name.contains("jmh", ignoreCase = true)) {
-        options.compilerArgs.add("--add-exports")
-        options.compilerArgs.add("java.base/jdk.internal.vm.annotation=ALL-UNNAMED")
-    }
+    // Vector API is still incubating and java.lang.foreign is a preview API in JDK 21
+    options.compilerArgs.add("--add-modules")
+    options.compilerArgs.add("jdk.incubator.vector")
+    options.compilerArgs.add("--enable-preview")
+    // @Contended is used by the benchmark state classes and the concurrent library
+    options.compilerArgs.add("--add-exports")
+    options.compilerArgs.add("java.base/jdk.internal.vm.annotation=ALL-UNNAMED")
 }
 
 tasks.register("generateBlobs") {
@@ -72,6 +78,13 @@ tasks.register("generateBlobs") {
     doLast {
         project.javaexec {
             mainClass.set("fi.lauripiispanen.benchmarks.io.BlobGenerator")
+            jvmArgs("--enable-preview")
+            // e.g. ./gradlew generateBlobs -Pblobs.count=4 -Pblobs.minSize=64m -Pblobs.maxSize=256m
+            args(listOf("count", "minSize", "maxSize", "out", "seed", "threads").mapNotNull { name ->
+                project.findProperty("blobs.$name")?.let { value ->
+                    "--" + name.replace(Regex("[A-Z]")) { "-" + it.value.lowercase() } + "=" + value
+                }
+            })
             classpath = sourceSets["main"].runtimeClasspath
         }
     }
@@ -81,7 +94,7 @@ val os = org.gradle.internal.os.OperatingSystem.current()
 val nativeSourceDir = "src/native"
 
 val cFile = if (os.isLinux) "io_uring_reader.c" else "dummy_reader.c"
-val sourcePath = file("$nativeSourceDir/$cFile")
+val sourcePaths = listOf(cFile, "io_uring_bridge.c").map { file("$nativeSourceDir/$it") }
 
 val outputLib = when {
     os.isMacOsX -> "libio_uring_reader.dylib"
@@ -100,14 +113,14 @@ tasks.register<Exec>("compileNative") {
     group = "build"
     description = "Compiles native JNI library"
 
-    inputs.file(sourcePath)
+    inputs.files(sourcePaths)
+    inputs.dir("native/")
     outputs.file(outputPath)
 
     commandLine = listOf(
-        "gcc", "-fPIC", "-shared",
-        "-o", outputPath.get().asFile.absolutePath,
-        sourcePath.absolutePath
-    ) + jniIncludes.map { "-I$it" }
+        "gcc", "-O2", "-fPIC", "-shared",
+        "-o", outputPath.get().asFile.absolutePath
+    ) + sourcePaths.map { it.absolutePath } + (jniIncludes + file("native").absolutePath).map { "-I$it" }
 
     doFirst {
         val osName: String = System.getProperty("os.name") ?: "unknown"
@@ -156,6 +169,9 @@ tasks.register("runJmh", Exec::class) {
         workingDir = projectDir
         commandLine = listOf(
             "java",
+            "--add-modules=jdk.incubator.vector",
+            "--enable-preview",
+            "--enable-native-access=ALL-UNNAMED",
             "-Djava.library.path=$nativeLibPath",
             "-jar",
             "${layout.buildDirectory.get()}/libs/app-jmh.jar",
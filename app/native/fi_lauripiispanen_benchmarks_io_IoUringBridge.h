@@ -7,13 +7,15 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef fi_lauripiispanen_benchmarks_io_IoUringBridge_DEFAULT_QUEUE_DEPTH
+#define fi_lauripiispanen_benchmarks_io_IoUringBridge_DEFAULT_QUEUE_DEPTH 32L
 /*
  * Class:     fi_lauripiispanen_benchmarks_io_IoUringBridge
  * Method:    readOffsets
- * Signature: (Ljava/lang/String;[JI[B)I
+ * Signature: (Ljava/lang/String;[JII[B)I
  */
 JNIEXPORT jint JNICALL Java_fi_lauripiispanen_benchmarks_io_IoUringBridge_readOffsets
-  (JNIEnv *, jclass, jstring, jlongArray, jint, jbyteArray);
+  (JNIEnv *, jclass, jstring, jlongArray, jint, jint, jbyteArray);
 
 #ifdef __cplusplus
 }
@@ -0,0 +1,115 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.concurrent.TimeUnit;
+import java.util.Random;
+
+/**
+ * Flat {@link BloomFilter} vs. cache-line-blocked {@link BlockedBloomFilter}.
+ *
+ * Both filters set 8 bits per key. {@code bitsetSize} goes from 16 KB
+ * (fits in L1/L2) up to 512 MB (well past any L3), which is where the one
+ * cache miss per key of the blocked layout should pay off. Queries run
+ * against a pre-populated filter with keys that were never inserted, so
+ * every positive counted in {@link FppCounters} is a false positive.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 2, warmups = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BlockedBloomFilterBenchmark {
+
+  private static final int NUM_HASHES = BlockedBloomFilter.BLOCK_LONGS;
+  private static final int KEY_LENGTH = 20;
+
+  @Param({ "200000" })
+  private int numElements;
+
+  // 16 KB, 128 KB, 1 MB, 8 MB, 64 MB, 512 MB
+  @Param({ "131072", "1048576", "8388608", "67108864", "536870912", "4294967296" })
+  private long bitsetSize;
+
+  private long[] insertHashes;
+  private long[] probeHashes;
+
+  private BloomFilter flat;
+  private BlockedBloomFilter blocked;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    insertHashes = new long[numElements];
+    probeHashes = new long[numElements];
+    byte[] key = new byte[KEY_LENGTH];
+    for (int i = 0; i < numElements; i++) {
+      random.nextBytes(key);
+      insertHashes[i] = Fnv1a.hash64(key);
+    }
+    for (int i = 0; i < numElements; i++) {
+      random.nextBytes(key);
+      probeHashes[i] = Fnv1a.hash64(key);
+    }
+
+    flat = new BloomFilter(bitsetSize, NUM_HASHES);
+    blocked = new BlockedBloomFilter(bitsetSize);
+    for (long hash : insertHashes) {
+      flat.putHash(hash);
+      blocked.putHash(hash);
+    }
+  }
+
+  @Benchmark
+  public void insertFlat(Blackhole bh) {
+    for (long hash : insertHashes) {
+      bh.consume(flat.putHash(hash));
+    }
+  }
+
+  @Benchmark
+  public void insertBlockedVector(Blackhole bh) {
+    for (long hash : insertHashes) {
+      bh.consume(blocked.putHash(hash));
+    }
+  }
+
+  @Benchmark
+  public void insertBlockedScalar(Blackhole bh) {
+    for (long hash : insertHashes) {
+      bh.consume(blocked.putHashScalar(hash));
+    }
+  }
+
+  @Benchmark
+  public void queryFlat(FppCounters counters) {
+    for (long hash : probeHashes) {
+      counters.queries++;
+      if (flat.mightContainHash(hash)) {
+        counters.falsePositives++;
+      }
+    }
+  }
+
+  @Benchmark
+  public void queryBlockedVector(FppCounters counters) {
+    for (long hash : probeHashes) {
+      counters.queries++;
+      if (blocked.mightContainHash(hash)) {
+        counters.falsePositives++;
+      }
+    }
+  }
+
+  @Benchmark
+  public void queryBlockedScalar(FppCounters counters) {
+    for (long hash : probeHashes) {
+      counters.queries++;
+      if (blocked.mightContainHashScalar(hash)) {
+        counters.falsePositives++;
+      }
+    }
+  }
+}
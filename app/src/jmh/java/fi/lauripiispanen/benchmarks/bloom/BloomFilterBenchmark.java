@@ -0,0 +1,154 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.division.HitMissCounters;
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.concurrent.TimeUnit;
+import java.util.Random;
+
+/**
+ * Compares {@link BloomFilter} against the inline single-hash loops of
+ * {@code CpuDivisionBenchmark}, using the same 80/20 unique/duplicate key
+ * mix. The library variants are swept over k so the per-key cost of
+ * additional probes can be read off directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 2, warmups = 1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BloomFilterBenchmark {
+
+  @Param({ "50000", "200000" })
+  private int numElements;
+
+  @Param({ "131072", "1048576" })
+  private int bitsetSize;
+
+  private byte[][] testKeys;
+  private int[] precomputedHashes;
+  private long[] precomputedHashes64;
+  private boolean[] results;
+  private Random random;
+  private static final int KEY_LENGTH = 20;
+
+  @Setup
+  public void setup() {
+    random = new Random(42);
+    testKeys = new byte[numElements][];
+    precomputedHashes = new int[numElements];
+    precomputedHashes64 = new long[numElements];
+    results = new boolean[numElements];
+
+    // Generate 80% unique keys and 20% duplicates to simulate real-world caching
+    int uniqueKeys = (int) (numElements * 0.8);
+
+    for (int i = 0; i < uniqueKeys; i++) {
+      testKeys[i] = generateRandomKey();
+      precomputedHashes64[i] = Fnv1a.hash64(testKeys[i]);
+      precomputedHashes[i] = Fnv1a.hash32(testKeys[i]);
+    }
+
+    for (int i = uniqueKeys; i < numElements; i++) {
+      int duplicateIndex = random.nextInt(uniqueKeys);
+      testKeys[i] = testKeys[duplicateIndex];
+      precomputedHashes64[i] = precomputedHashes64[duplicateIndex];
+      precomputedHashes[i] = precomputedHashes[duplicateIndex];
+    }
+  }
+
+  private byte[] generateRandomKey() {
+    byte[] key = new byte[KEY_LENGTH];
+    random.nextBytes(key);
+    return key;
+  }
+
+  // Baseline: inline single-hash insert, as in CpuDivisionBenchmark
+  @Benchmark
+  public void bloomFilterInsertWithManualBitArray(Blackhole bh) {
+    long[] bits = new long[bitsetSize / 64];
+    for (int hash : precomputedHashes) {
+      int index = hash & (bitsetSize - 1);
+      int word = index >>> 6;
+      int bit = index & 63;
+      bits[word] |= (1L << bit);
+    }
+    bh.consume(bits);
+  }
+
+  // Baseline: inline single-hash query-then-insert, as in CpuDivisionBenchmark
+  @Benchmark
+  public void bloomFilterQueryWithBitwiseAnd(HitMissCounters counters, Blackhole bh) {
+    long[] bits = new long[bitsetSize / 64];
+    for (byte[] key : testKeys) {
+      int index = Fnv1a.hash32(key) & (bitsetSize - 1);
+      int word = index >>> 6;
+      int bit = index & 63;
+      boolean present = (bits[word] & (1L << bit)) != 0;
+      if (present) {
+        counters.hits++;
+      } else {
+        counters.misses++;
+      }
+      bits[word] |= (1L << bit);
+    }
+    bh.consume(counters);
+  }
+
+  /** k for the library variants only; the single-hash baselines ignore it. */
+  @State(Scope.Thread)
+  public static class Hashes {
+    @Param({ "1", "3", "7" })
+    private int numHashes;
+  }
+
+  @Benchmark
+  public void libraryInsertPrecomputed(Hashes k, Blackhole bh) {
+    BloomFilter filter = new BloomFilter(bitsetSize, k.numHashes);
+    for (long hash : precomputedHashes64) {
+      filter.putHash(hash);
+    }
+    bh.consume(filter);
+  }
+
+  @Benchmark
+  public void libraryQuery(Hashes k, HitMissCounters counters, Blackhole bh) {
+    BloomFilter filter = new BloomFilter(bitsetSize, k.numHashes);
+    for (byte[] key : testKeys) {
+      if (filter.put(key)) {
+        counters.misses++;
+      } else {
+        counters.hits++;
+      }
+    }
+    bh.consume(counters);
+  }
+
+  @Benchmark
+  public int libraryPutAll(Hashes k) {
+    BloomFilter filter = new BloomFilter(bitsetSize, k.numHashes);
+    return filter.putAll(testKeys);
+  }
+
+  @Benchmark
+  public int libraryMightContainAll(FilledFilter filled) {
+    return filled.filter.mightContainAll(testKeys, results);
+  }
+
+  /** Pre-populated filter so that the query benchmark measures lookups only. */
+  @State(Scope.Thread)
+  public static class FilledFilter {
+    BloomFilter filter;
+
+    @Setup
+    public void setup(BloomFilterBenchmark benchmark, Hashes k) {
+      filter = new BloomFilter(benchmark.bitsetSize, k.numHashes);
+      // Only insert the first half so that about half of the queries miss
+      for (int i = 0; i < benchmark.numElements / 2; i++) {
+        filter.put(benchmark.testKeys[i]);
+      }
+    }
+  }
+}
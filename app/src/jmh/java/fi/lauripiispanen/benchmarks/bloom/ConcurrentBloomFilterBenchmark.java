@@ -0,0 +1,114 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.Random;
+
+/**
+ * Writer and reader threads sharing a single {@link ConcurrentBloomFilter},
+ * in the style of {@code FalseSharingBenchmark}.
+ *
+ * {@code keySpace} controls contention: with 64 keys every writer keeps
+ * hitting the same handful of words, with 4M keys writes are spread over
+ * the whole filter. {@code insertMode} picks between read-then-OR (the
+ * default {@code putHash}), an unconditional atomic OR and a CAS loop.
+ *
+ * The groups below run one writer and one reader. Scale them from 1 to 16
+ * threads with {@code -tg}, e.g. {@code -tg 1,1}, {@code -tg 4,4},
+ * {@code -tg 8,8} or {@code -tg 12,4} for an ingest-heavy mix.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 2, warmups = 1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConcurrentBloomFilterBenchmark {
+
+  private static final int KEY_LENGTH = 20;
+
+  @State(Scope.Group)
+  public static class SharedFilter {
+    @Param({ "8388608" })
+    public long bitSize;
+
+    @Param({ "7" })
+    public int numHashes;
+
+    @Param({ "1", "16" })
+    public int numShards;
+
+    @Param({ "64", "4194304" })
+    public int keySpace;
+
+    @Param({ "testFirst", "unconditional", "cas" })
+    public String insertMode;
+
+    ConcurrentBloomFilter filter;
+    long[] hashes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      Random random = new Random(42);
+      hashes = new long[keySpace];
+      byte[] key = new byte[KEY_LENGTH];
+      for (int i = 0; i < keySpace; i++) {
+        random.nextBytes(key);
+        hashes[i] = Fnv1a.hash64(key);
+      }
+      filter = new ConcurrentBloomFilter(bitSize, numHashes, numShards);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      filter.clear();
+    }
+  }
+
+  /** Per-thread position in the shared key space. */
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      next = ThreadLocalRandom.current().nextInt(1 << 20);
+    }
+
+    long nextHash(SharedFilter shared) {
+      long[] hashes = shared.hashes;
+      int i = next++ & Integer.MAX_VALUE;
+      return hashes[i % hashes.length];
+    }
+  }
+
+  private static boolean insert(SharedFilter shared, long hash) {
+    return switch (shared.insertMode) {
+      case "unconditional" -> shared.filter.putHashUnconditional(hash);
+      case "cas" -> shared.filter.putHashCas(hash);
+      default -> shared.filter.putHash(hash);
+    };
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public boolean writer(SharedFilter shared, Cursor cursor) {
+    return insert(shared, cursor.nextHash(shared));
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public boolean reader(SharedFilter shared, Cursor cursor) {
+    return shared.filter.mightContainHash(cursor.nextHash(shared));
+  }
+
+  @Benchmark
+  @Group("writeOnly")
+  @GroupThreads(1)
+  public boolean writerOnly(SharedFilter shared, Cursor cursor) {
+    return insert(shared, cursor.nextHash(shared));
+  }
+}
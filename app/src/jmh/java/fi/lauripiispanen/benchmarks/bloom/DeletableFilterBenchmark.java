@@ -0,0 +1,171 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.concurrent.TimeUnit;
+import java.util.Random;
+
+/**
+ * {@link CuckooFilter} and {@link CountingBloomFilter} on the dedup-cache
+ * workload, with the single-hash {@code bloomFilterInsertWithManualBitArray}
+ * loop as the insert baseline.
+ *
+ * The {@code churn*} benchmarks model a cache of {@code numElements} live
+ * keys that evicts constantly: every step inserts a new key and deletes the
+ * oldest one, which a plain Bloom filter cannot do without a rebuild.
+ * Every method reports the footprint of its filter as {@code bitsPerKey}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 2, warmups = 1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DeletableFilterBenchmark {
+
+  private static final int KEY_LENGTH = 20;
+  private static final double FPP = 0.01;
+
+  @Param({ "50000", "200000" })
+  private int numElements;
+
+  private long[] hashes;
+  private int[] precomputedHashes;
+  private long[] streamHashes;
+  private int bitsetSize;
+
+  private CuckooFilter cuckoo;
+  private CountingBloomFilter counting;
+  private int cursor;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(42);
+    byte[] key = new byte[KEY_LENGTH];
+    hashes = new long[numElements];
+    precomputedHashes = new int[numElements];
+
+    // Generate 80% unique keys and 20% duplicates to simulate real-world caching
+    int uniqueKeys = (int) (numElements * 0.8);
+    for (int i = 0; i < uniqueKeys; i++) {
+      random.nextBytes(key);
+      hashes[i] = Fnv1a.hash64(key);
+      precomputedHashes[i] = Fnv1a.hash32(key);
+    }
+    for (int i = uniqueKeys; i < numElements; i++) {
+      int duplicateIndex = random.nextInt(uniqueKeys);
+      hashes[i] = hashes[duplicateIndex];
+      precomputedHashes[i] = precomputedHashes[duplicateIndex];
+    }
+
+    // Fresh keys for the eviction stream
+    streamHashes = new long[4 * numElements];
+    for (int i = 0; i < streamHashes.length; i++) {
+      random.nextBytes(key);
+      streamHashes[i] = Fnv1a.hash64(key);
+    }
+
+    bitsetSize = (int) BloomFilter.optimalBitSize(numElements, FPP);
+  }
+
+  /** Footprint of the filter a method used, in bits per key; assigned, not accumulated. */
+  @State(Scope.Thread)
+  @AuxCounters(Type.EVENTS)
+  public static class Footprint {
+    public double bitsPerKey;
+  }
+
+  private double bitsPerKey(long bits) {
+    return (double) bits / numElements;
+  }
+
+  @Setup(Level.Iteration)
+  public void fill() {
+    cuckoo = CuckooFilter.create(numElements);
+    counting = CountingBloomFilter.create(numElements, FPP);
+    for (int i = 0; i < numElements; i++) {
+      cuckoo.putHash(streamHashes[i]);
+      counting.putHash(streamHashes[i]);
+    }
+    cursor = 0;
+  }
+
+  @Benchmark
+  public void bloomFilterInsertWithManualBitArray(Footprint footprint, Blackhole bh) {
+    long[] bits = new long[bitsetSize / 64];
+    for (int hash : precomputedHashes) {
+      int index = hash & (bitsetSize - 1);
+      int word = index >>> 6;
+      int bit = index & 63;
+      bits[word] |= (1L << bit);
+    }
+    footprint.bitsPerKey = bitsPerKey(bitsetSize);
+    bh.consume(bits);
+  }
+
+  @Benchmark
+  public void insertCuckoo(Footprint footprint, Blackhole bh) {
+    CuckooFilter filter = CuckooFilter.create(numElements);
+    for (long hash : hashes) {
+      filter.putHash(hash);
+    }
+    footprint.bitsPerKey = bitsPerKey(filter.bitSize());
+    bh.consume(filter);
+  }
+
+  @Benchmark
+  public void insertCounting(Footprint footprint, Blackhole bh) {
+    CountingBloomFilter filter = CountingBloomFilter.create(numElements, FPP);
+    for (long hash : hashes) {
+      filter.putHash(hash);
+    }
+    footprint.bitsPerKey = bitsPerKey(filter.bitSize());
+    bh.consume(filter);
+  }
+
+  @Benchmark
+  public void queryCuckoo(Footprint footprint, Blackhole bh) {
+    footprint.bitsPerKey = bitsPerKey(cuckoo.bitSize());
+    for (long hash : hashes) {
+      bh.consume(cuckoo.mightContainHash(hash));
+    }
+  }
+
+  @Benchmark
+  public void queryCounting(Footprint footprint, Blackhole bh) {
+    footprint.bitsPerKey = bitsPerKey(counting.bitSize());
+    for (long hash : hashes) {
+      bh.consume(counting.mightContainHash(hash));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(1000)
+  public void churnCuckoo(Footprint footprint, Blackhole bh) {
+    footprint.bitsPerKey = bitsPerKey(cuckoo.bitSize());
+    long[] stream = streamHashes;
+    for (int i = 0; i < 1000; i++) {
+      int oldest = cursor;
+      int newest = (cursor + numElements) % stream.length;
+      bh.consume(cuckoo.deleteHash(stream[oldest]));
+      bh.consume(cuckoo.putHash(stream[newest]));
+      cursor = (cursor + 1) % stream.length;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(1000)
+  public void churnCounting(Footprint footprint, Blackhole bh) {
+    footprint.bitsPerKey = bitsPerKey(counting.bitSize());
+    long[] stream = streamHashes;
+    for (int i = 0; i < 1000; i++) {
+      int oldest = cursor;
+      int newest = (cursor + numElements) % stream.length;
+      bh.consume(counting.deleteHash(stream[oldest]));
+      bh.consume(counting.putHash(stream[newest]));
+      cursor = (cursor + 1) % stream.length;
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+
+@State(Scope.Thread)
+@AuxCounters(Type.EVENTS)
+public class FppCounters {
+  /** number of queries for keys that were never inserted */
+  public long queries;
+
+  /** number of those queries that still answered "might contain" */
+  public long falsePositives;
+}
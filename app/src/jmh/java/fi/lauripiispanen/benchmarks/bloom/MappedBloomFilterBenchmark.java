@@ -0,0 +1,113 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.Random;
+
+/**
+ * Heap {@link BloomFilter} vs. file-backed {@link MappedBloomFilter}.
+ *
+ * The insert/query benchmarks measure steady-state cost per batch of
+ * {@code numElements} keys. {@code readyRebuildHeap} and
+ * {@code readyOpenMapped} measure what a restart costs: rebuilding the heap
+ * filter from all keys vs. mapping the persisted file and answering the
+ * first query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 2, warmups = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MappedBloomFilterBenchmark {
+
+  private static final int KEY_LENGTH = 20;
+  private static final int NUM_HASHES = 7;
+
+  @Param({ "200000" })
+  private int numElements;
+
+  // 1 MB and 128 MB
+  @Param({ "8388608", "1073741824" })
+  private long bitSize;
+
+  private long[] hashes;
+  private Path file;
+  private BloomFilter heap;
+  private MappedBloomFilter mapped;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    Random random = new Random(42);
+    hashes = new long[numElements];
+    byte[] key = new byte[KEY_LENGTH];
+    for (int i = 0; i < numElements; i++) {
+      random.nextBytes(key);
+      hashes[i] = Fnv1a.hash64(key);
+    }
+
+    file = Files.createTempFile("bloom", ".bin");
+    heap = new BloomFilter(bitSize, NUM_HASHES);
+    mapped = MappedBloomFilter.create(file, bitSize, NUM_HASHES, 0L);
+    for (long hash : hashes) {
+      heap.putHash(hash);
+      mapped.putHash(hash);
+    }
+    mapped.flush();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    mapped.close();
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public void insertHeap(Blackhole bh) {
+    for (long hash : hashes) {
+      bh.consume(heap.putHash(hash));
+    }
+  }
+
+  @Benchmark
+  public void insertMapped(Blackhole bh) {
+    for (long hash : hashes) {
+      bh.consume(mapped.putHash(hash));
+    }
+  }
+
+  @Benchmark
+  public void queryHeap(Blackhole bh) {
+    for (long hash : hashes) {
+      bh.consume(heap.mightContainHash(hash));
+    }
+  }
+
+  @Benchmark
+  public void queryMapped(Blackhole bh) {
+    for (long hash : hashes) {
+      bh.consume(mapped.mightContainHash(hash));
+    }
+  }
+
+  @Benchmark
+  public boolean readyRebuildHeap() {
+    BloomFilter rebuilt = new BloomFilter(bitSize, NUM_HASHES);
+    for (long hash : hashes) {
+      rebuilt.putHash(hash);
+    }
+    return rebuilt.mightContainHash(hashes[0]);
+  }
+
+  @Benchmark
+  public boolean readyOpenMapped() throws IOException {
+    try (MappedBloomFilter reopened = MappedBloomFilter.open(file, true)) {
+      return reopened.mightContainHash(hashes[0]);
+    }
+  }
+}
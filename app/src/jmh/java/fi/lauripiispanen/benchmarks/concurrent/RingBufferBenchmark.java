@@ -0,0 +1,229 @@
+package fi.lauripiispanen.benchmarks.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Producer/consumer handoff through {@link SpscRingBuffer} and
+ * {@link MpscRingBuffer} vs. {@code ArrayBlockingQueue} and
+ * {@code ConcurrentLinkedQueue}.
+ *
+ * Throughput groups report successful {@code offered}/{@code polled}
+ * transfers per ms through {@link Transfers}; the group score itself also
+ * counts calls that found the queue full or empty. {@code pingPong}
+ * measures round-trip handoff latency between two threads: read the
+ * {@code pingPong:ping} percentiles.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 2, warmups = 1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RingBufferBenchmark {
+
+  private static final Integer TOKEN = 42;
+  private static final int BATCH = 32;
+
+  static BoundedQueue<Integer> create(String type, int capacity) {
+    return switch (type) {
+      case "spsc" -> new SpscRingBuffer<>(capacity);
+      case "mpsc" -> new MpscRingBuffer<>(capacity);
+      case "arrayBlocking" -> new JdkQueue<>(new ArrayBlockingQueue<>(capacity), capacity);
+      case "concurrentLinked" -> new JdkQueue<>(new ConcurrentLinkedQueue<>(), capacity);
+      default -> throw new IllegalArgumentException("unknown queue type: " + type);
+    };
+  }
+
+  /** JDK queue behind the {@link BoundedQueue} interface. */
+  static final class JdkQueue<E> implements BoundedQueue<E> {
+    private final Queue<E> queue;
+    private final int capacity;
+
+    JdkQueue(Queue<E> queue, int capacity) {
+      this.queue = queue;
+      this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(E e) {
+      // ConcurrentLinkedQueue is unbounded; bound it so producers cannot run away.
+      // Its size() walks the list, so this understates it somewhat.
+      return queue.size() < capacity && queue.offer(e);
+    }
+
+    @Override
+    public E poll() {
+      return queue.poll();
+    }
+
+    @Override
+    public int size() {
+      return queue.size();
+    }
+
+    @Override
+    public int capacity() {
+      return capacity;
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(Type.OPERATIONS)
+  public static class Transfers {
+    public long offered;
+    public long polled;
+  }
+
+  @State(Scope.Group)
+  public static class SingleProducer {
+    @Param({ "spsc", "mpsc", "arrayBlocking", "concurrentLinked" })
+    public String spscQueueType;
+
+    @Param({ "1024" })
+    public int capacity;
+
+    BoundedQueue<Integer> queue;
+    final Integer[] batch = new Integer[BATCH];
+
+    @Setup(Level.Iteration)
+    public void setup() {
+      queue = create(spscQueueType, capacity);
+      Arrays.fill(batch, TOKEN);
+    }
+  }
+
+  @State(Scope.Group)
+  public static class MultiProducer {
+    @Param({ "mpsc", "arrayBlocking", "concurrentLinked" })
+    public String mpscQueueType;
+
+    @Param({ "1024" })
+    public int capacity;
+
+    BoundedQueue<Integer> queue;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+      queue = create(mpscQueueType, capacity);
+    }
+  }
+
+  @State(Scope.Group)
+  public static class PingPong {
+    @Param({ "spsc", "mpsc", "arrayBlocking", "concurrentLinked" })
+    public String pingPongQueueType;
+
+    BoundedQueue<Integer> ping;
+    BoundedQueue<Integer> pong;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+      ping = create(pingPongQueueType, 1024);
+      pong = create(pingPongQueueType, 1024);
+    }
+  }
+
+  /** Counts drained elements without allocating a lambda per call. */
+  @State(Scope.Thread)
+  public static class Sink implements Consumer<Integer> {
+    long count;
+
+    @Override
+    public void accept(Integer e) {
+      count++;
+    }
+  }
+
+  @Benchmark
+  @Group("spsc")
+  @GroupThreads(1)
+  public void spscProduce(SingleProducer s, Transfers t) {
+    if (s.queue.offer(TOKEN)) {
+      t.offered++;
+    }
+  }
+
+  @Benchmark
+  @Group("spsc")
+  @GroupThreads(1)
+  public void spscConsume(SingleProducer s, Transfers t) {
+    if (s.queue.poll() != null) {
+      t.polled++;
+    }
+  }
+
+  @Benchmark
+  @Group("spscBatch")
+  @GroupThreads(1)
+  public void spscBatchProduce(SingleProducer s, Transfers t) {
+    t.offered += s.queue.offerBatch(s.batch, 0, BATCH);
+  }
+
+  @Benchmark
+  @Group("spscBatch")
+  @GroupThreads(1)
+  public void spscBatchConsume(SingleProducer s, Transfers t, Sink sink) {
+    t.polled += s.queue.drain(sink, BATCH);
+  }
+
+  @Benchmark
+  @Group("mpsc")
+  @GroupThreads(3)
+  public void mpscProduce(MultiProducer s, Transfers t) {
+    if (s.queue.offer(TOKEN)) {
+      t.offered++;
+    }
+  }
+
+  @Benchmark
+  @Group("mpsc")
+  @GroupThreads(1)
+  public void mpscConsume(MultiProducer s, Transfers t) {
+    if (s.queue.poll() != null) {
+      t.polled++;
+    }
+  }
+
+  @Benchmark
+  @Group("pingPong")
+  @GroupThreads(1)
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void ping(PingPong s, Control control) {
+    while (!s.ping.offer(TOKEN)) {
+      if (control.stopMeasurement) {
+        return;
+      }
+    }
+    while (s.pong.poll() == null) {
+      // the pong thread may already have left at the end of the iteration
+      if (control.stopMeasurement) {
+        return;
+      }
+    }
+  }
+
+  @Benchmark
+  @Group("pingPong")
+  @GroupThreads(1)
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void pong(PingPong s, Control control) {
+    Integer e = s.ping.poll();
+    if (e != null) {
+      while (!s.pong.offer(e)) {
+        if (control.stopMeasurement) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package fi.lauripiispanen.benchmarks.concurrent;
+
+import fi.lauripiispanen.benchmarks.state.SharedStateContended;
+import fi.lauripiispanen.benchmarks.state.SharedStatePadded;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared counters hammered by many writers while one thread reads the sum,
+ * in the style of {@code FalseSharingBenchmark}.
+ *
+ * Each counter group runs three incrementing threads and one reader by
+ * default. Scale the writers with {@code -tg}, e.g. {@code -tg 1,1},
+ * {@code -tg 7,1}, {@code -tg 15,1} or {@code -tg 31,1} for 32 threads.
+ *
+ * The {@code fixedStripes*} groups are the hand-striped upper bound: four
+ * writers that each atomically increment their own field of
+ * {@link SharedStatePadded} / {@link SharedStateContended}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StripedCounterBenchmark {
+
+  private static final VarHandle PADDED_1 = field(SharedStatePadded.class, "value1");
+  private static final VarHandle PADDED_2 = field(SharedStatePadded.class, "value2");
+  private static final VarHandle PADDED_3 = field(SharedStatePadded.class, "value3");
+  private static final VarHandle PADDED_4 = field(SharedStatePadded.class, "value4");
+  private static final VarHandle CONTENDED_1 = field(SharedStateContended.class, "value1");
+  private static final VarHandle CONTENDED_2 = field(SharedStateContended.class, "value2");
+  private static final VarHandle CONTENDED_3 = field(SharedStateContended.class, "value3");
+  private static final VarHandle CONTENDED_4 = field(SharedStateContended.class, "value4");
+
+  private static VarHandle field(Class<?> type, String name) {
+    try {
+      return MethodHandles.lookup().findVarHandle(type, name, long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  @State(Scope.Group)
+  public static class Counters {
+    final AtomicLong atomicLong = new AtomicLong();
+    final LongAdder longAdder = new LongAdder();
+    final int maxStripes = Runtime.getRuntime().availableProcessors();
+    final StripedCounter stripedNone = new StripedCounter(Padding.NONE, maxStripes);
+    final StripedCounter stripedManual = new StripedCounter(Padding.MANUAL, maxStripes);
+    final StripedCounter stripedContended = new StripedCounter(Padding.CONTENDED, maxStripes);
+    final SharedStatePadded padded = new SharedStatePadded();
+    final SharedStateContended contended = new SharedStateContended();
+  }
+
+  @Benchmark
+  @Group("atomicLong")
+  @GroupThreads(3)
+  public void atomicLongAdd(Counters c) {
+    c.atomicLong.incrementAndGet();
+  }
+
+  @Benchmark
+  @Group("atomicLong")
+  @GroupThreads(1)
+  public long atomicLongSum(Counters c) {
+    return c.atomicLong.get();
+  }
+
+  @Benchmark
+  @Group("longAdder")
+  @GroupThreads(3)
+  public void longAdderAdd(Counters c) {
+    c.longAdder.increment();
+  }
+
+  @Benchmark
+  @Group("longAdder")
+  @GroupThreads(1)
+  public long longAdderSum(Counters c) {
+    return c.longAdder.sum();
+  }
+
+  @Benchmark
+  @Group("stripedNone")
+  @GroupThreads(3)
+  public void stripedNoneAdd(Counters c) {
+    c.stripedNone.increment();
+  }
+
+  @Benchmark
+  @Group("stripedNone")
+  @GroupThreads(1)
+  public long stripedNoneSum(Counters c) {
+    return c.stripedNone.sum();
+  }
+
+  @Benchmark
+  @Group("stripedManual")
+  @GroupThreads(3)
+  public void stripedManualAdd(Counters c) {
+    c.stripedManual.increment();
+  }
+
+  @Benchmark
+  @Group("stripedManual")
+  @GroupThreads(1)
+  public long stripedManualSum(Counters c) {
+    return c.stripedManual.sum();
+  }
+
+  @Benchmark
+  @Group("stripedContended")
+  @GroupThreads(3)
+  public void stripedContendedAdd(Counters c) {
+    c.stripedContended.increment();
+  }
+
+  @Benchmark
+  @Group("stripedContended")
+  @GroupThreads(1)
+  public long stripedContendedSum(Counters c) {
+    return c.stripedContended.sum();
+  }
+
+  @Benchmark
+  @Group("fixedStripesPadded")
+  @GroupThreads(1)
+  public void fixedStripesPaddedOne(Counters c) {
+    PADDED_1.getAndAdd(c.padded, 1L);
+  }
+
+  @Benchmark
+  @Group("fixedStripesPadded")
+  @GroupThreads(1)
+  public void fixedStripesPaddedTwo(Counters c) {
+    PADDED_2.getAndAdd(c.padded, 1L);
+  }
+
+  @Benchmark
+  @Group("fixedStripesPadded")
+  @GroupThreads(1)
+  public void fixedStripesPaddedThree(Counters c) {
+    PADDED_3.getAndAdd(c.padded, 1L);
+  }
+
+  @Benchmark
+  @Group("fixedStripesPadded")
+  @GroupThreads(1)
+  public void fixedStripesPaddedFour(Counters c) {
+    PADDED_4.getAndAdd(c.padded, 1L);
+  }
+
+  @Benchmark
+  @Group("fixedStripesPadded")
+  @GroupThreads(1)
+  public long fixedStripesPaddedSum(Counters c) {
+    SharedStatePadded s = c.padded;
+    return s.value1 + s.value2 + s.value3 + s.value4;
+  }
+
+  @Benchmark
+  @Group("fixedStripesContended")
+  @GroupThreads(1)
+  public void fixedStripesContendedOne(Counters c) {
+    CONTENDED_1.getAndAdd(c.contended, 1L);
+  }
+
+  @Benchmark
+  @Group("fixedStripesContended")
+  @GroupThreads(1)
+  public void fixedStripesContendedTwo(Counters c) {
+    CONTENDED_2.getAndAdd(c.contended, 1L);
+  }
+
+  @Benchmark
+  @Group("fixedStripesContended")
+  @GroupThreads(1)
+  public void fixedStripesContendedThree(Counters c) {
+    CONTENDED_3.getAndAdd(c.contended, 1L);
+  }
+
+  @Benchmark
+  @Group("fixedStripesContended")
+  @GroupThreads(1)
+  public void fixedStripesContendedFour(Counters c) {
+    CONTENDED_4.getAndAdd(c.contended, 1L);
+  }
+
+  @Benchmark
+  @Group("fixedStripesContended")
+  @GroupThreads(1)
+  public long fixedStripesContendedSum(Counters c) {
+    SharedStateContended s = c.contended;
+    return s.value1 + s.value2 + s.value3 + s.value4;
+  }
+}
@@ -0,0 +1,157 @@
+package fi.lauripiispanen.benchmarks.division;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+import fi.lauripiispanen.benchmarks.index.FastRangeReducer;
+import fi.lauripiispanen.benchmarks.index.FloorModReducer;
+import fi.lauripiispanen.benchmarks.index.ReciprocalModReducer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.concurrent.TimeUnit;
+import java.util.Random;
+
+/**
+ * {@code CpuDivisionBenchmark} for sizes that are not powers of two. The mask
+ * variants are left out since they would not cover the whole range;
+ * 131072 is kept as a point of comparison with the original results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 2, warmups = 1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IndexReductionBenchmark {
+
+  @Param({ "50000", "200000" })
+  private int numElements;
+
+  @Param({ "100003", "131072", "1000000" })
+  private int bitsetSize;
+
+  private byte[][] testKeys;
+  private int[] precomputedHashes;
+  private Random random;
+  private static final int KEY_LENGTH = 20;
+
+  private FloorModReducer floorMod;
+  private FastRangeReducer fastRange;
+  private ReciprocalModReducer reciprocal;
+
+  @Setup
+  public void setup() {
+    random = new Random(42);
+    testKeys = new byte[numElements][];
+    precomputedHashes = new int[numElements];
+
+    // Generate 80% unique keys and 20% duplicates to simulate real-world caching
+    int uniqueKeys = (int) (numElements * 0.8);
+
+    for (int i = 0; i < uniqueKeys; i++) {
+      testKeys[i] = generateRandomKey();
+      precomputedHashes[i] = Fnv1a.hash32(testKeys[i]);
+    }
+
+    for (int i = uniqueKeys; i < numElements; i++) {
+      int duplicateIndex = random.nextInt(uniqueKeys);
+      testKeys[i] = testKeys[duplicateIndex];
+      precomputedHashes[i] = precomputedHashes[duplicateIndex];
+    }
+
+    floorMod = new FloorModReducer(bitsetSize);
+    fastRange = new FastRangeReducer(bitsetSize);
+    reciprocal = new ReciprocalModReducer(bitsetSize);
+  }
+
+  private byte[] generateRandomKey() {
+    byte[] key = new byte[KEY_LENGTH];
+    random.nextBytes(key);
+    return key;
+  }
+
+  // Pure hash function benchmarks
+  @Benchmark
+  public void hashWithModulo(Blackhole bh) {
+    for (byte[] key : testKeys) {
+      bh.consume(floorMod.reduce(Fnv1a.hash32(key)));
+    }
+  }
+
+  @Benchmark
+  public void hashWithFastRange(Blackhole bh) {
+    for (byte[] key : testKeys) {
+      bh.consume(fastRange.reduce(Fnv1a.hash32(key)));
+    }
+  }
+
+  @Benchmark
+  public void hashWithReciprocal(Blackhole bh) {
+    for (byte[] key : testKeys) {
+      bh.consume(reciprocal.reduce(Fnv1a.hash32(key)));
+    }
+  }
+
+  // Pure indexing benchmarks
+  @Benchmark
+  public void indexingWithModulo(Blackhole bh) {
+    for (int hash : precomputedHashes) {
+      bh.consume(floorMod.reduce(hash));
+    }
+  }
+
+  @Benchmark
+  public void indexingWithFastRange(Blackhole bh) {
+    for (int hash : precomputedHashes) {
+      bh.consume(fastRange.reduce(hash));
+    }
+  }
+
+  @Benchmark
+  public void indexingWithReciprocal(Blackhole bh) {
+    for (int hash : precomputedHashes) {
+      bh.consume(reciprocal.reduce(hash));
+    }
+  }
+
+  // Bloom filter query-then-insert with an exactly sized bit array
+  @Benchmark
+  public void bloomFilterQueryWithModulo(HitMissCounters counters, Blackhole bh) {
+    long[] bits = new long[(bitsetSize + 63) >>> 6];
+    for (byte[] key : testKeys) {
+      int index = floorMod.reduce(Fnv1a.hash32(key));
+      testAndSet(bits, index, counters);
+    }
+    bh.consume(counters);
+  }
+
+  @Benchmark
+  public void bloomFilterQueryWithFastRange(HitMissCounters counters, Blackhole bh) {
+    long[] bits = new long[(bitsetSize + 63) >>> 6];
+    for (byte[] key : testKeys) {
+      int index = fastRange.reduce(Fnv1a.hash32(key));
+      testAndSet(bits, index, counters);
+    }
+    bh.consume(counters);
+  }
+
+  @Benchmark
+  public void bloomFilterQueryWithReciprocal(HitMissCounters counters, Blackhole bh) {
+    long[] bits = new long[(bitsetSize + 63) >>> 6];
+    for (byte[] key : testKeys) {
+      int index = reciprocal.reduce(Fnv1a.hash32(key));
+      testAndSet(bits, index, counters);
+    }
+    bh.consume(counters);
+  }
+
+  private static void testAndSet(long[] bits, int index, HitMissCounters counters) {
+    int word = index >>> 6;
+    int bit = index & 63;
+    boolean present = (bits[word] & (1L << bit)) != 0;
+    if (present) {
+      counters.hits++;
+    } else {
+      counters.misses++;
+    }
+    bits[word] |= (1L << bit);
+  }
+}
@@ -0,0 +1,135 @@
+package fi.lauripiispanen.benchmarks.hash;
+
+import fi.lauripiispanen.benchmarks.division.HitMissCounters;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.Random;
+
+/**
+ * Per-key {@code fnv1a64to32} vs. the {@link BatchHasher} implementations.
+ *
+ * The {@code distribution*} benchmarks hash every key into a
+ * {@code bitsetSize} bit table and count how often the bit was already set,
+ * like {@code bloomFilterQueryWithBitwiseAnd}. With the 20% duplicates in
+ * the key set, a well-distributed hash should score close to the expected
+ * number of random collisions; a clearly higher hit count means clustering.
+ * Sequential keys ({@code key-0000000001}...) are the interesting case,
+ * random bytes make almost any hash look good.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 2, warmups = 1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HashingBenchmark {
+
+  @Param({ "50000", "200000" })
+  private int numElements;
+
+  @Param({ "20" })
+  private int keyLength;
+
+  @Param({ "random", "sequential" })
+  private String keyPattern;
+
+  @Param({ "1048576" })
+  private int bitsetSize;
+
+  private byte[][] testKeys;
+  private int[] out;
+  private Random random;
+
+  private final BatchHasher interleaved = new InterleavedFnv1aHasher();
+  private final BatchHasher vector = new VectorFnv1aHasher();
+  private final BatchHasher word = new WordHasher();
+
+  @Setup
+  public void setup() {
+    random = new Random(42);
+    testKeys = new byte[numElements][];
+    out = new int[numElements];
+
+    // Generate 80% unique keys and 20% duplicates to simulate real-world caching
+    int uniqueKeys = (int) (numElements * 0.8);
+    for (int i = 0; i < uniqueKeys; i++) {
+      testKeys[i] = generateKey(i);
+    }
+    for (int i = uniqueKeys; i < numElements; i++) {
+      testKeys[i] = testKeys[random.nextInt(uniqueKeys)];
+    }
+  }
+
+  private byte[] generateKey(int i) {
+    byte[] key = new byte[keyLength];
+    if ("sequential".equals(keyPattern)) {
+      byte[] text = String.format("key-%0" + Math.max(1, keyLength - 4) + "d", i).getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(text, text.length - keyLength, key, 0, keyLength);
+    } else {
+      random.nextBytes(key);
+    }
+    return key;
+  }
+
+  @Benchmark
+  public void hashPerKeyFnv1a(Blackhole bh) {
+    for (byte[] key : testKeys) {
+      bh.consume(Fnv1a.hash32(key));
+    }
+  }
+
+  @Benchmark
+  public int[] hashAllFnv1a() {
+    BatchHasher.FNV1A.hashAll(testKeys, out);
+    return out;
+  }
+
+  @Benchmark
+  public int[] hashAllInterleavedFnv1a() {
+    interleaved.hashAll(testKeys, out);
+    return out;
+  }
+
+  @Benchmark
+  public int[] hashAllVectorFnv1a() {
+    vector.hashAll(testKeys, out);
+    return out;
+  }
+
+  @Benchmark
+  public int[] hashAllWord() {
+    word.hashAll(testKeys, out);
+    return out;
+  }
+
+  @Benchmark
+  public void distributionFnv1a(HitMissCounters counters, Blackhole bh) {
+    BatchHasher.FNV1A.hashAll(testKeys, out);
+    countCollisions(counters);
+    bh.consume(counters);
+  }
+
+  @Benchmark
+  public void distributionWord(HitMissCounters counters, Blackhole bh) {
+    word.hashAll(testKeys, out);
+    countCollisions(counters);
+    bh.consume(counters);
+  }
+
+  private void countCollisions(HitMissCounters counters) {
+    long[] bits = new long[bitsetSize / 64];
+    for (int hash : out) {
+      int index = hash & (bitsetSize - 1);
+      int w = index >>> 6;
+      long bit = 1L << (index & 63);
+      if ((bits[w] & bit) != 0) {
+        counters.hits++;
+      } else {
+        counters.misses++;
+      }
+      bits[w] |= bit;
+    }
+  }
+}
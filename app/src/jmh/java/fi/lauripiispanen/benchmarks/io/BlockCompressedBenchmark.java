@@ -0,0 +1,197 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code randomRead_MemoryMappedFile} from {@link IoBenchmark} against the
+ * same reads from {@link BlockCompressedFile}s, both mapped once per trial.
+ *
+ * The first {@code maxFiles} blobs are compressed into
+ * {@code blobDir/compressed} during setup unless a file for the same block
+ * size and level is already there. {@code blocksInflated} and
+ * {@code compressedBytesRead} total the compressed reads' work per
+ * iteration; {@code compressedBytesRead / blocksInflated / blockSize}
+ * approximates the compression ratio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BlockCompressedBenchmark {
+
+  @Param({ "blobs" })
+  public String blobDir;
+
+  @Param({ "4" })
+  public int maxFiles;
+
+  @Param({ "100" })
+  public int numRandomReads;
+
+  @Param({ "10240" })
+  public int chunkSize;
+
+  private File[] files;
+  private Arena arena;
+  private MemorySegment[] raw;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    File dir = new File(blobDir);
+    File[] found = dir.listFiles((d, name) -> name.endsWith(".json"));
+    if (found == null || found.length == 0) {
+      throw new RuntimeException("Run BlobGenerator first");
+    }
+    Arrays.sort(found);
+    files = Arrays.copyOf(found, Math.min(maxFiles, found.length));
+
+    arena = Arena.ofShared();
+    raw = new MemorySegment[files.length];
+    for (int i = 0; i < files.length; i++) {
+      try (FileChannel channel = FileChannel.open(files[i].toPath(), StandardOpenOption.READ)) {
+        raw[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    arena.close();
+  }
+
+  /**
+   * The compressed copies. Kept apart so that only
+   * {@code randomRead_Compressed} is swept over block size and level.
+   */
+  @State(Scope.Benchmark)
+  public static class Compressed {
+    @Param({ "16384", "65536", "262144" })
+    public int blockSize;
+
+    @Param({ "1", "6", "9" })
+    public int level;
+
+    BlockCompressedFile[] files;
+
+    @Setup(Level.Trial)
+    public void setup(BlockCompressedBenchmark b) throws IOException {
+      Path outDir = new File(b.blobDir).toPath().resolve("compressed");
+      outDir.toFile().mkdirs();
+      files = new BlockCompressedFile[b.files.length];
+      for (int i = 0; i < files.length; i++) {
+        File json = b.files[i];
+        String name = json.getName().replace(".json", ".b" + blockSize + ".l" + level + ".blz");
+        Path out = outDir.resolve(name);
+        if (!out.toFile().exists() || out.toFile().lastModified() < json.lastModified()) {
+          BlockCompressedFile.compress(json.toPath(), out, blockSize, level);
+        }
+        files[i] = BlockCompressedFile.open(out);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      for (BlockCompressedFile file : files) {
+        file.close();
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Chunk {
+    byte[] buf;
+
+    @Setup(Level.Trial)
+    public void setup(BlockCompressedBenchmark b) {
+      buf = new byte[b.chunkSize];
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Readers {
+    BlockCompressedFile.Reader[] readers;
+    byte[] buf;
+
+    @Setup(Level.Trial)
+    public void setup(BlockCompressedBenchmark b, Compressed c) {
+      readers = new BlockCompressedFile.Reader[c.files.length];
+      for (int i = 0; i < readers.length; i++) {
+        readers[i] = c.files[i].reader();
+      }
+      buf = new byte[b.chunkSize];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      for (BlockCompressedFile.Reader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(Type.EVENTS)
+  public static class Counters {
+    public long blocksInflated;
+    public long compressedBytesRead;
+  }
+
+  private long[] getRandomOffsets(long fileSize) {
+    long[] offsets = new long[numRandomReads];
+    for (int i = 0; i < numRandomReads; i++) {
+      offsets[i] = ThreadLocalRandom.current().nextLong(0, Math.max(1, fileSize - chunkSize + 1));
+    }
+    return offsets;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_MemoryMappedFile(Chunk c) {
+    MemorySegment file = raw[ThreadLocalRandom.current().nextInt(raw.length)];
+    long fileSize = file.byteSize();
+    byte[] buf = c.buf;
+    int total = 0;
+    for (long offset : getRandomOffsets(fileSize)) {
+      int toRead = (int) Math.min(chunkSize, fileSize - offset);
+      MemorySegment.copy(file, ValueLayout.JAVA_BYTE, offset, buf, 0, toRead);
+      for (int i = 0; i < toRead; i++) {
+        if (buf[i] == ',')
+          total++;
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_Compressed(Compressed c, Readers r, Counters counters) {
+    int f = ThreadLocalRandom.current().nextInt(c.files.length);
+    BlockCompressedFile.Reader reader = r.readers[f];
+    long blocksBefore = reader.blocksInflated();
+    long bytesBefore = reader.compressedBytesRead();
+    byte[] buf = r.buf;
+    int total = 0;
+    for (long offset : getRandomOffsets(c.files[f].uncompressedSize())) {
+      int read = reader.read(offset, buf, 0, chunkSize);
+      for (int i = 0; i < read; i++) {
+        if (buf[i] == ',')
+          total++;
+      }
+    }
+    counters.blocksInflated += reader.blocksInflated() - blocksBefore;
+    counters.compressedBytesRead += reader.compressedBytesRead() - bytesBefore;
+    return total;
+  }
+}
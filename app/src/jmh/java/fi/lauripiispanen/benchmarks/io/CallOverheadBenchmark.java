@@ -0,0 +1,125 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call overhead of the positional read paths in {@link IoBenchmark}:
+ * FFM downcalls ({@link PanamaIoBridge}), JNI ({@link IoUringBridge}) and
+ * NIO ({@link FileChannel}), with chunks small enough that the call costs
+ * more than the copy. Reads come from the page cache and the processing is
+ * a plain comma count, so the chunk size is the only thing swept.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CallOverheadBenchmark {
+
+  @Param({ "blobs" })
+  public String blobDir;
+
+  @Param({ "100" })
+  public int numRandomReads;
+
+  @Param({ "64", "512", "4096" })
+  public int chunkSize;
+
+  /** io_uring reads in flight; at 1 every read is its own submission. */
+  @Param({ "1" })
+  public int queueDepth;
+
+  private File[] files;
+  private long[] offsets;
+  private byte[] jniBuffer;
+  private Arena arena;
+  private MemorySegment panamaBuffer;
+  private ByteBuffer channelBuffer;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    File dir = new File(blobDir);
+    files = dir.listFiles((d, name) -> name.endsWith(".json"));
+    if (files == null || files.length == 0) {
+      throw new RuntimeException("Run BlobGenerator first");
+    }
+    offsets = new long[numRandomReads];
+    jniBuffer = new byte[numRandomReads * chunkSize];
+    arena = Arena.ofConfined();
+    panamaBuffer = arena.allocate((long) numRandomReads * chunkSize, 4096);
+    channelBuffer = ByteBuffer.allocateDirect(chunkSize);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    arena.close();
+  }
+
+  private File nextFile() {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    long fileSize = f.length();
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = ThreadLocalRandom.current().nextLong(0, Math.max(1, fileSize - chunkSize + 1));
+    }
+    return f;
+  }
+
+  private static void checkErrno(int result, String path) throws IOException {
+    if (result < 0) {
+      throw new IOException("read of " + path + " failed: errno " + -result);
+    }
+  }
+
+  @Benchmark
+  public int pread_Panama() throws IOException {
+    String path = nextFile().getAbsolutePath();
+    MemorySegment buf = panamaBuffer;
+    checkErrno(PanamaIoBridge.readOffsets(path, offsets, chunkSize, buf), path);
+    int total = 0;
+    for (long i = 0; i < (long) offsets.length * chunkSize; i++) {
+      if (buf.get(ValueLayout.JAVA_BYTE, i) == ',')
+        total++;
+    }
+    return total;
+  }
+
+  @Benchmark
+  public int pread_IoUring() throws IOException {
+    String path = nextFile().getAbsolutePath();
+    byte[] buf = jniBuffer;
+    checkErrno(IoUringBridge.readOffsets(path, offsets, chunkSize, queueDepth, buf), path);
+    int total = 0;
+    for (byte b : buf) {
+      if (b == ',')
+        total++;
+    }
+    return total;
+  }
+
+  @Benchmark
+  public int pread_FileChannel() throws IOException {
+    File f = nextFile();
+    ByteBuffer buf = channelBuffer;
+    int total = 0;
+    try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+      for (long offset : offsets) {
+        buf.clear();
+        int read = channel.read(buf, offset);
+        for (int i = 0; i < read; i++) {
+          if (buf.get(i) == ',')
+            total++;
+        }
+      }
+    }
+    return total;
+  }
+}
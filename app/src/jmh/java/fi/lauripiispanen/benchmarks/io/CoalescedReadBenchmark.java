@@ -0,0 +1,142 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A batch of random chunk reads, one {@code pread} per offset as in
+ * {@code IoBenchmark.randomRead_FileChannel}, against the same batch
+ * planned by {@link ReadPlanner}.
+ *
+ * Offsets fall in a random window of {@code spanMb} per batch (the whole
+ * file if 0), so denser batches have more to merge. {@code reads} and
+ * {@code bytes} are the rates of read calls and of the bytes they returned,
+ * gaps included; divided by the batch rate they give reads and bytes per
+ * batch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CoalescedReadBenchmark {
+
+  @Param({ "blobs" })
+  public String blobDir;
+
+  @Param({ "100", "1000", "10000" })
+  public int numRandomReads;
+
+  @Param({ "512", "4096", "65536" })
+  public int chunkSize;
+
+  @Param({ "64" })
+  public int spanMb;
+
+  /** Largest gap between chunks that is read through rather than skipped. */
+  @Param({ "16384" })
+  public int maxGap;
+
+  /** Longest merged read. */
+  @Param({ "1048576" })
+  public int maxReadBytes;
+
+  private FileChannel[] channels;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    File dir = new File(blobDir);
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+    if (files == null || files.length == 0) {
+      throw new RuntimeException("Run BlobGenerator first");
+    }
+    channels = new FileChannel[files.length];
+    for (int i = 0; i < files.length; i++) {
+      channels[i] = FileChannel.open(files[i].toPath(), StandardOpenOption.READ);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    for (FileChannel channel : channels) {
+      channel.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(Type.OPERATIONS)
+  public static class Counters {
+    public long reads;
+    public long bytes;
+  }
+
+  @State(Scope.Thread)
+  public static class Batch {
+    long[] offsets;
+    ByteBuffer buffer;
+    ReadPlanner planner;
+    int total;
+
+    @Setup(Level.Trial)
+    public void setup(CoalescedReadBenchmark b) {
+      offsets = new long[b.numRandomReads];
+      buffer = ByteBuffer.allocateDirect(Math.max(b.chunkSize, b.maxReadBytes));
+      planner = new ReadPlanner(b.maxGap);
+    }
+  }
+
+  private void fillOffsets(long fileSize, long[] offsets) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long span = spanMb == 0 ? fileSize : Math.min(fileSize, (long) spanMb << 20);
+    long base = random.nextLong(0, fileSize - span + 1);
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = base + random.nextLong(0, Math.max(1, span - chunkSize + 1));
+    }
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_PerOffset(Batch batch, Counters counters) throws IOException {
+    FileChannel channel = channels[ThreadLocalRandom.current().nextInt(channels.length)];
+    fillOffsets(channel.size(), batch.offsets);
+    ByteBuffer buf = batch.buffer;
+    int total = 0;
+    for (long offset : batch.offsets) {
+      buf.clear().limit(chunkSize);
+      int read = channel.read(buf, offset);
+      counters.reads++;
+      for (int i = 0; i < read; i++) {
+        if (buf.get(i) == ',')
+          total++;
+      }
+      counters.bytes += Math.max(read, 0);
+    }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_Coalesced(Batch batch, Counters counters) throws IOException {
+    FileChannel channel = channels[ThreadLocalRandom.current().nextInt(channels.length)];
+    fillOffsets(channel.size(), batch.offsets);
+    ReadPlanner planner = batch.planner;
+    long bytesBefore = planner.bytesRead();
+    batch.total = 0;
+    counters.reads += planner.read(channel, batch.offsets, chunkSize, batch.buffer, (offset, data) -> {
+      int total = 0;
+      for (int i = data.position(); i < data.limit(); i++) {
+        if (data.get(i) == ',')
+          total++;
+      }
+      batch.total += total;
+    });
+    counters.bytes += planner.bytesRead() - bytesBefore;
+    return batch.total;
+  }
+}
@@ -0,0 +1,158 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import fi.lauripiispanen.benchmarks.columnar.ColumnarBlob;
+import fi.lauripiispanen.benchmarks.columnar.ColumnarConverter;
+import fi.lauripiispanen.benchmarks.ndjson.DeviceAggregator;
+import fi.lauripiispanen.benchmarks.ndjson.DeviceRecordParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same blobs as JSON and as {@link ColumnarBlob}s, all mapped once per
+ * trial: full scans and timestamp range queries into a per-device
+ * aggregation.
+ *
+ * Missing columnar files are converted into {@code blobDir/columnar} during
+ * setup. {@code records} and {@code bytes} are records and bytes read per
+ * second; a JSON range query still has to read and parse the whole file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ColumnarBenchmark {
+
+  @Param({ "blobs" })
+  public String blobDir;
+
+  /** Share of a file's timestamp span covered by a range query. */
+  @Param({ "0.01" })
+  public double rangeFraction;
+
+  private Arena arena;
+  private MemorySegment[] json;
+  private ColumnarBlob[] columnar;
+  private long[] rangeFrom;
+  private long[] rangeTo;
+
+  @State(Scope.Thread)
+  @AuxCounters(Type.OPERATIONS)
+  public static class Counters {
+    public long records;
+    public long bytes;
+  }
+
+  @State(Scope.Thread)
+  public static class Aggregation {
+    final DeviceAggregator aggregator = new DeviceAggregator();
+    final DeviceRecordParser parser = new DeviceRecordParser(aggregator);
+
+    DeviceRecordParser reset() {
+      aggregator.clear();
+      parser.reset();
+      return parser;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    File dir = new File(blobDir);
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+    if (files == null || files.length == 0) {
+      throw new RuntimeException("Run BlobGenerator first");
+    }
+    Path outDir = dir.toPath().resolve("columnar");
+    outDir.toFile().mkdirs();
+
+    arena = Arena.ofShared();
+    json = new MemorySegment[files.length];
+    columnar = new ColumnarBlob[files.length];
+    rangeFrom = new long[files.length];
+    rangeTo = new long[files.length];
+    for (int i = 0; i < files.length; i++) {
+      Path col = ColumnarConverter.outputPath(files[i].toPath(), outDir);
+      if (!col.toFile().exists() || col.toFile().lastModified() < files[i].lastModified()) {
+        ColumnarConverter.convert(files[i].toPath(), col);
+      }
+      try (FileChannel channel = FileChannel.open(files[i].toPath(), StandardOpenOption.READ)) {
+        json[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+      }
+      columnar[i] = ColumnarBlob.open(col);
+
+      // A window in the middle of the file's time span
+      long min = columnar[i].minTs();
+      long span = columnar[i].maxTs() - min;
+      rangeFrom[i] = min + span / 2;
+      rangeTo[i] = rangeFrom[i] + (long) (span * rangeFraction);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (ColumnarBlob blob : columnar) {
+      blob.close();
+    }
+    arena.close();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public long fullScan_Json(Aggregation a, Counters counters) {
+    MemorySegment segment = json[ThreadLocalRandom.current().nextInt(json.length)];
+    DeviceRecordParser parser = a.reset();
+    parser.parse(segment);
+    parser.finish();
+    counters.records += a.aggregator.records();
+    counters.bytes += segment.byteSize();
+    return a.aggregator.checksum();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public long fullScan_Columnar(Aggregation a, Counters counters) {
+    ColumnarBlob blob = columnar[ThreadLocalRandom.current().nextInt(columnar.length)];
+    a.reset();
+    counters.bytes += blob.scan(a.aggregator);
+    counters.records += a.aggregator.records();
+    return a.aggregator.checksum();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public long rangeScan_Json(Aggregation a, Counters counters) {
+    int i = ThreadLocalRandom.current().nextInt(json.length);
+    long from = rangeFrom[i];
+    long to = rangeTo[i];
+    a.reset();
+    DeviceAggregator aggregator = a.aggregator;
+    DeviceRecordParser parser = new DeviceRecordParser((device, ts, val) -> {
+      if (ts >= from && ts <= to) {
+        aggregator.accept(device, ts, val);
+      }
+    });
+    parser.parse(json[i]);
+    parser.finish();
+    counters.records += aggregator.records();
+    counters.bytes += json[i].byteSize();
+    return aggregator.checksum();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public long rangeScan_Columnar(Aggregation a, Counters counters) {
+    int i = ThreadLocalRandom.current().nextInt(columnar.length);
+    a.reset();
+    counters.bytes += columnar[i].scan(rangeFrom[i], rangeTo[i], a.aggregator);
+    counters.records += a.aggregator.records();
+    return a.aggregator.checksum();
+  }
+}
@@ -1,8 +1,13 @@
 package fi.lauripiispanen.benchmarks.io;
 
+import fi.lauripiispanen.benchmarks.scan.ByteScanner;
 import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
 
 import java.io.*;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ThreadLocalRandom;
 import java.nio.file.*;
@@ -19,7 +24,46 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.Set;
+import com.sun.nio.file.ExtendedOpenOption;
+
+/**
+ * Whole-file and random-offset reads of the generated JSON blobs.
+ *
+ * {@code randomRead_Panama}, {@code randomRead_IoUring} and
+ * {@code randomRead_FileChannel} do the same positional reads through FFM
+ * downcalls, JNI and NIO. {@link CallOverheadBenchmark} compares their
+ * per-call overhead at small chunk sizes.
+ *
+ * The {@code AsyncPipelined} methods keep {@code queueDepth} reads in flight
+ * per thread with {@link PipelinedAsyncReader}, where the plain
+ * AsynchronousFileChannel methods block on every read. They run on fewer
+ * threads; sweep the depth with {@code -p queueDepth=1,8,32,128}.
+ *
+ * The {@code _Pooled} methods take their buffers from a shared
+ * {@link BufferPool} and reuse one offsets array per thread, where their
+ * plain counterparts allocate on every call. Compare allocation rate and
+ * tail latency with {@code -bm sample -prof gc}.
+ *
+ * Every method counts commas as stand-in processing, with the kernel picked
+ * by {@code scanMode}; {@code -p scanMode=vector} against {@code scalar}
+ * separates scanning cost from I/O cost.
+ *
+ * {@code cacheMode} decides whether the blobs are read from the page cache.
+ * {@code direct} mode is opt-in: only FileChannel, AsynchronousFileChannel
+ * and Panama reads can bypass the cache, so select those methods with it,
+ * e.g. {@code -p cacheMode=direct
+ * 'IoBenchmark\.(.*FileChannel.*|.*AsyncPipelined|randomRead_(Panama|CompletableFuture|PerOffset))$'}.
+ * Streams, mappings and io_uring would run as in {@code dropped}, so they
+ * fail setup in direct mode. Random offsets and read lengths are then
+ * aligned to the file system block size, and only {@code chunkSize} bytes
+ * of each read are processed. In {@code dropped}
+ * mode the MappedFileCache methods are the exception: files the shared
+ * cache keeps mapped across iterations stay resident, so they measure a
+ * warm cache after their first iteration.
+ */
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
 @State(Scope.Thread)
@@ -35,46 +79,245 @@ public class IoBenchmark {
   @Param({ "100" })
   public int numRandomReads;
 
-  @Param({ "4" })
-  public int numThreads;
-
   @Param({ "10240" })
   public int chunkSize;
 
+  /**
+   * Reads kept in flight by io_uring and the pipelined async reader; for
+   * io_uring, from {@code numRandomReads} up each random read is one
+   * submission.
+   */
+  @Param({ "128" })
+  public int queueDepth;
+
+  /**
+   * {@code warm} leaves the blobs in the page cache, {@code dropped} evicts
+   * them with {@code posix_fadvise(DONTNEED)} before every iteration and
+   * {@code direct}, which is not swept by default, also opens files with
+   * {@code O_DIRECT}.
+   */
+  @Param({ "warm", "dropped" })
+  public String cacheMode;
+
+  /** Comma counting kernel: {@code scalar}, {@code swar} or {@code vector}; see {@link ByteScanner#of}. */
+  @Param({ "scalar", "swar", "vector" })
+  public String scanMode;
+
+  private static final byte COMMA = ',';
+
+  /** Chunks per io_uring call when reading a whole file. */
+  private static final int WHOLE_FILE_BATCH = 256;
+
   private File[] files;
-  private ExecutorService executor;
+  private byte[] ioUringBuffer;
+  private Arena arena;
+  private MemorySegment panamaBuffer;
+  private ByteBuffer directBuffer;
+  private boolean direct;
+  private Set<OpenOption> openOptions;
+  // 1 unless direct; chunkSize rounded up to it
+  private int ioAlignment;
+  private int ioChunk;
+  private PipelinedAsyncReader asyncReader;
+  private final CommaCounter commaCounter = new CommaCounter();
+  private long[] offsetScratch;
+  private ByteScanner scanner;
 
   @Setup(Level.Trial)
-  public void setup() {
+  public void setup() throws IOException {
     File dir = new File(blobDir);
     if (!dir.exists()) {
       throw new RuntimeException("Run BlobGenerator first");
     }
     files = dir.listFiles((d, name) -> name.endsWith(".json"));
-    executor = Executors.newFixedThreadPool(numThreads);
+    direct = switch (cacheMode) {
+      case "warm", "dropped" -> false;
+      case "direct" -> true;
+      default -> throw new IllegalArgumentException("unknown cache mode: " + cacheMode);
+    };
+    openOptions = direct
+        ? Set.of(StandardOpenOption.READ, ExtendedOpenOption.DIRECT)
+        : Set.of(StandardOpenOption.READ);
+    ioAlignment = direct ? Math.toIntExact(Files.getFileStore(dir.toPath()).getBlockSize()) : 1;
+    ioChunk = alignUp(chunkSize);
+    ioUringBuffer = new byte[Math.max(numRandomReads, WHOLE_FILE_BATCH) * chunkSize];
+    arena = Arena.ofShared();
+    panamaBuffer = arena.allocate((long) numRandomReads * ioChunk, Math.max(4096, ioAlignment));
+    directBuffer = direct ? alignedBuffer(ioChunk) : ByteBuffer.allocateDirect(chunkSize);
+    asyncReader = new PipelinedAsyncReader(queueDepth, ioChunk, ioAlignment);
+    offsetScratch = new long[numRandomReads];
+    scanner = ByteScanner.of(scanMode);
+  }
+
+  /** Methods whose reads cannot bypass the page cache. */
+  private static boolean ignoresDirect(String method) {
+    return method.contains("FileInputStream") || method.contains("MemoryMappedFile")
+        || method.contains("IoUring") || method.contains("MappedFileCache") || method.startsWith("openMapping");
+  }
+
+  @Setup(Level.Trial)
+  public void rejectIgnoredCacheMode(BenchmarkParams params) {
+    String benchmark = params.getBenchmark();
+    String method = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+    if (cacheMode.equals("direct") && ignoresDirect(method)) {
+      throw new IllegalArgumentException("cacheMode=direct has no effect on " + method + ", use dropped");
+    }
+  }
+
+  private int alignUp(int size) {
+    return (size + ioAlignment - 1) & -ioAlignment;
+  }
+
+  private ByteBuffer alignedBuffer(int size) {
+    return ByteBuffer.allocateDirect(size + ioAlignment).alignedSlice(ioAlignment).slice(0, size);
+  }
+
+  /** Buffer for reads of {@code size} bytes: on-heap, or aligned off-heap in direct mode. */
+  private ByteBuffer readBuffer(int size) {
+    return direct ? alignedBuffer(alignUp(size)) : ByteBuffer.allocate(size);
   }
 
   @TearDown(Level.Trial)
   public void tearDown() {
-    executor.shutdown();
-    try {
-      if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+    arena.close();
+  }
+
+  /**
+   * One {@link MappedFileCache} shared by all benchmark threads. Hits and
+   * misses (mmap calls) are counted in {@link CacheCounters}.
+   */
+  @State(Scope.Benchmark)
+  public static class MappedCache {
+    @Param({ "256", "4096" })
+    public long cacheBudgetMb;
+
+    MappedFileCache cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      cache = new MappedFileCache(cacheBudgetMb << 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      cache.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class CacheCounters {
+    public long hits;
+    public long misses;
+
+    void count(MappedFileCache.Lease lease) {
+      if (lease.hit()) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+  }
+
+  /**
+   * Page-aligned buffers for the {@code _Pooled} methods. Closing the pool
+   * fails the trial if a method leaked a buffer.
+   */
+  @State(Scope.Benchmark)
+  public static class Pool {
+    BufferPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      pool = new BufferPool(64 << 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      pool.close();
+    }
+  }
+
+  /**
+   * Executor for the fan-out benchmarks. {@code fixed} and {@code forkJoin}
+   * run on {@code numThreads} platform threads; {@code virtual} starts a
+   * virtual thread per task.
+   */
+  @State(Scope.Benchmark)
+  public static class Fanout {
+    @Param({ "fixed", "forkJoin", "virtual" })
+    public String executorMode;
+
+    @Param({ "4" })
+    public int numThreads;
+
+    ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      executor = switch (executorMode) {
+        case "fixed" -> Executors.newFixedThreadPool(numThreads);
+        case "forkJoin" -> new ForkJoinPool(numThreads);
+        case "virtual" -> Executors.newVirtualThreadPerTaskExecutor();
+        default -> throw new IllegalArgumentException("unknown executor mode: " + executorMode);
+      };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      executor.shutdown();
+      try {
+        if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+          executor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
         executor.shutdownNow();
       }
-    } catch (InterruptedException e) {
-      executor.shutdownNow();
     }
   }
 
+  /** Kept apart from {@link Fanout}, which the per-file method uses too. */
+  @State(Scope.Benchmark)
+  public static class PerOffsetFanout {
+    /** Reads started at once by {@code randomRead_PerOffset}. */
+    @Param({ "1000", "10000", "100000" })
+    public int inFlightReads;
+  }
+
   @Setup(Level.Iteration)
   public void reshuffleFiles() {
     Collections.shuffle(Arrays.asList(files));
   }
 
+  /**
+   * Every benchmark thread does this; later calls find little left to evict.
+   * Pages mapped by {@link MappedCache} are not evicted while mapped.
+   */
+  @Setup(Level.Iteration)
+  public void dropPageCache() throws IOException {
+    if (cacheMode.equals("warm")) {
+      return;
+    }
+    for (File f : files) {
+      checkErrno(PanamaIoBridge.dropCache(f.getAbsolutePath()), f.getAbsolutePath());
+    }
+  }
+
   private long[] getRandomOffsets(long fileSize, int chunkSize, int numOffsets) {
     long[] offsets = new long[numOffsets];
     for (int i = 0; i < numOffsets; i++) {
-      offsets[i] = ThreadLocalRandom.current().nextLong(0, Math.max(1, fileSize - chunkSize + 1));
+      offsets[i] = ThreadLocalRandom.current().nextLong(0, Math.max(1, fileSize - chunkSize + 1))
+          & -(long) ioAlignment;
+    }
+    return offsets;
+  }
+
+  /** {@link #getRandomOffsets} into this thread's reused array. */
+  private long[] fillRandomOffsets(long fileSize) {
+    long[] offsets = offsetScratch;
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = ThreadLocalRandom.current().nextLong(0, Math.max(1, fileSize - chunkSize + 1))
+          & -(long) ioAlignment;
     }
     return offsets;
   }
@@ -90,10 +333,7 @@ public class IoBenchmark {
       int read;
       while ((read = in.read(buf)) != -1) {
         // Fake processing: count commas (simulate parsing work)
-        for (int i = 0; i < read; i++) {
-          if (buf[i] == ',')
-            total++;
-        }
+        total += scanner.count(buf, 0, read, COMMA);
       }
     }
 
@@ -106,9 +346,8 @@ public class IoBenchmark {
     File f = files[ThreadLocalRandom.current().nextInt(files.length)];
 
     try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(
-        Path.of(f.getAbsolutePath()),
-        StandardOpenOption.READ)) {
-      ByteBuffer buffer = ByteBuffer.allocate(1024);
+        Path.of(f.getAbsolutePath()), openOptions, null)) {
+      ByteBuffer buffer = readBuffer(1024);
       long position = 0;
       int total = 0;
       int bytesRead;
@@ -119,11 +358,7 @@ public class IoBenchmark {
         if (bytesRead == -1) {
           break;
         }
-        buffer.flip();
-        for (int i = 0; i < bytesRead; i++) {
-          if (buffer.get() == ',')
-            total++; // simulate processing
-        }
+        total += scanner.count(buffer, 0, bytesRead, COMMA); // simulate processing
         buffer.clear();
         position += bytesRead;
       }
@@ -132,6 +367,34 @@ public class IoBenchmark {
     }
   }
 
+  @Benchmark
+  @Threads(16)
+  public int readWholeFile_AsynchronousFileChannel_Pooled(Pool pool) throws Exception {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+
+    try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(
+        Path.of(f.getAbsolutePath()), openOptions, null);
+        BufferPool.Buffer pooled = pool.pool.acquire(alignUp(1024))) {
+      ByteBuffer buffer = pooled.byteBuffer();
+      long position = 0;
+      int total = 0;
+      int bytesRead;
+
+      while (true) {
+        Future<Integer> future = channel.read(buffer, position);
+        bytesRead = future.get();
+        if (bytesRead == -1) {
+          break;
+        }
+        total += scanner.count(buffer, 0, bytesRead, COMMA);
+        buffer.clear().limit(pooled.size());
+        position += bytesRead;
+      }
+
+      return total;
+    }
+  }
+
   @Benchmark
   @Threads(16)
   public int readWholeFile_MemoryMappedFile() throws IOException {
@@ -142,12 +405,51 @@ public class IoBenchmark {
       long fileSize = channel.size();
       MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
 
-      for (int i = 0; i < fileSize; i++) {
-        if (buffer.get(i) == ',')
-          total++;
+      total += scanner.count(buffer, 0, (int) fileSize, COMMA);
+    }
+
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int readWholeFile_IoUring() throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    String path = f.getAbsolutePath();
+    long fileSize = f.length();
+    byte[] buf = ioUringBuffer;
+    long[] offsets = new long[WHOLE_FILE_BATCH];
+    int total = 0;
+
+    for (long position = 0; position < fileSize;) {
+      int n = (int) Math.min(WHOLE_FILE_BATCH, (fileSize - position + chunkSize - 1) / chunkSize);
+      if (offsets.length != n) {
+        offsets = new long[n];
+      }
+      for (int c = 0; c < n; c++) {
+        offsets[c] = position + (long) c * chunkSize;
       }
+      checkErrno(IoUringBridge.readOffsets(path, offsets, chunkSize, queueDepth, buf), path);
+
+      // Chunks are full except the file's last one
+      int read = (int) Math.min((long) n * chunkSize, fileSize - position);
+      total += scanner.count(buf, 0, read, COMMA);
+      position += read;
     }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int readWholeFile_MappedFileCache(MappedCache cache, CacheCounters counters) throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    int total = 0;
 
+    try (MappedFileCache.Lease lease = cache.cache.acquire(f.toPath())) {
+      counters.count(lease);
+      MemorySegment segment = lease.segment();
+      total += (int) scanner.count(segment, 0, segment.byteSize(), COMMA);
+    }
     return total;
   }
 
@@ -164,10 +466,7 @@ public class IoBenchmark {
       for (long offset : offsets) {
         raf.seek(offset);
         int read = raf.read(buf, 0, (int) Math.min(chunkSize, fileSize - offset));
-        for (int i = 0; i < read; i++) {
-          if (buf[i] == ',')
-            total++;
-        }
+        total += scanner.count(buf, 0, Math.max(read, 0), COMMA);
       }
     }
     return total;
@@ -182,19 +481,36 @@ public class IoBenchmark {
     int total = 0;
 
     try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(
-        Path.of(f.getAbsolutePath()),
-        StandardOpenOption.READ)) {
-      ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        Path.of(f.getAbsolutePath()), openOptions, null)) {
+      ByteBuffer buffer = readBuffer(chunkSize);
       for (long offset : offsets) {
         buffer.clear();
         int toRead = (int) Math.min(chunkSize, fileSize - offset);
         Future<Integer> future = channel.read(buffer, offset);
         int bytesRead = future.get();
-        buffer.flip();
-        for (int i = 0; i < Math.min(bytesRead, toRead); i++) {
-          if (buffer.get() == ',')
-            total++;
-        }
+        total += scanner.count(buffer, 0, Math.max(0, Math.min(bytesRead, toRead)), COMMA);
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_AsynchronousFileChannel_Pooled(Pool pool) throws Exception {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    long fileSize = f.length();
+    long[] offsets = fillRandomOffsets(fileSize);
+    int total = 0;
+
+    try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(
+        Path.of(f.getAbsolutePath()), openOptions, null);
+        BufferPool.Buffer pooled = pool.pool.acquire(ioChunk)) {
+      ByteBuffer buffer = pooled.byteBuffer();
+      for (long offset : offsets) {
+        buffer.clear().limit(ioChunk);
+        int toRead = (int) Math.min(chunkSize, fileSize - offset);
+        int bytesRead = channel.read(buffer, offset).get();
+        total += scanner.count(buffer, 0, Math.max(0, Math.min(bytesRead, toRead)), COMMA);
       }
     }
     return total;
@@ -215,17 +531,209 @@ public class IoBenchmark {
         int toRead = (int) Math.min(chunkSize, fileSize - offset);
         buffer.position((int) offset);
         buffer.get(buf, 0, toRead);
-        for (int i = 0; i < toRead; i++) {
-          if (buf[i] == ',')
-            total++;
-        }
+        total += scanner.count(buf, 0, toRead, COMMA);
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_MemoryMappedFile_Pooled(Pool pool) throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    int total = 0;
+    long fileSize = f.length();
+    long[] offsets = fillRandomOffsets(fileSize);
+
+    // A MemorySegment mapping, unlike a MappedByteBuffer, is not limited to 2 GB
+    try (Arena arena = Arena.ofConfined();
+        FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+        BufferPool.Buffer pooled = pool.pool.acquire(chunkSize)) {
+      MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+      MemorySegment buf = pooled.segment();
+      for (long offset : offsets) {
+        long toRead = Math.min(chunkSize, fileSize - offset);
+        MemorySegment.copy(file, offset, buf, 0, toRead);
+        total += (int) scanner.count(buf, 0, toRead, COMMA);
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_MappedFileCache(MappedCache cache, CacheCounters counters) throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    int total = 0;
+
+    try (MappedFileCache.Lease lease = cache.cache.acquire(f.toPath())) {
+      counters.count(lease);
+      MemorySegment segment = lease.segment();
+      long fileSize = segment.byteSize();
+      long[] offsets = getRandomOffsets(fileSize, chunkSize, numRandomReads);
+      for (long offset : offsets) {
+        long end = Math.min(offset + chunkSize, fileSize);
+        total += (int) scanner.count(segment, offset, end, COMMA);
+      }
+    }
+    return total;
+  }
+
+  /** Cost of getting at a file's bytes by mapping it, as the MemoryMappedFile methods do. */
+  @Benchmark
+  @Threads(16)
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public byte openMapping_PerCall() throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return buffer.get(0);
+    }
+  }
+
+  /** The same through {@link MappedFileCache}; all hits once every file fits the budget. */
+  @Benchmark
+  @Threads(16)
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public byte openMapping_Cached(MappedCache cache) throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    try (MappedFileCache.Lease lease = cache.cache.acquire(f.toPath())) {
+      return lease.segment().get(ValueLayout.JAVA_BYTE, 0);
+    }
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_IoUring() throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    int total = 0;
+    long fileSize = f.length();
+    long[] offsets = getRandomOffsets(fileSize, chunkSize, numRandomReads);
+    byte[] buf = ioUringBuffer;
+
+    checkErrno(IoUringBridge.readOffsets(f.getAbsolutePath(), offsets, chunkSize, queueDepth, buf),
+        f.getAbsolutePath());
+    for (int r = 0; r < offsets.length; r++) {
+      int start = r * chunkSize;
+      int toRead = (int) Math.min(chunkSize, fileSize - offsets[r]);
+      total += scanner.count(buf, start, start + toRead, COMMA);
+    }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_Panama() throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    int total = 0;
+    long fileSize = f.length();
+    long[] offsets = getRandomOffsets(fileSize, chunkSize, numRandomReads);
+    MemorySegment buf = panamaBuffer;
+
+    checkErrno(PanamaIoBridge.readOffsets(f.getAbsolutePath(), offsets, ioChunk, buf, direct),
+        f.getAbsolutePath());
+    for (int r = 0; r < offsets.length; r++) {
+      long start = (long) r * ioChunk;
+      int toRead = (int) Math.min(chunkSize, fileSize - offsets[r]);
+      total += (int) scanner.count(buf, start, start + toRead, COMMA);
+    }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int randomRead_FileChannel() throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    int total = 0;
+    long fileSize = f.length();
+    long[] offsets = getRandomOffsets(fileSize, chunkSize, numRandomReads);
+    ByteBuffer buf = directBuffer;
+
+    try (FileChannel channel = FileChannel.open(f.toPath(), openOptions)) {
+      for (long offset : offsets) {
+        buf.clear();
+        int read = Math.min(channel.read(buf, offset), chunkSize);
+        total += scanner.count(buf, 0, Math.max(read, 0), COMMA);
       }
     }
     return total;
   }
 
   @Benchmark
-  public int randomRead_CompletableFuture() throws Exception {
+  @Threads(16)
+  public int randomRead_FileChannel_Pooled(Pool pool) throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    int total = 0;
+    long fileSize = f.length();
+    long[] offsets = fillRandomOffsets(fileSize);
+
+    try (FileChannel channel = FileChannel.open(f.toPath(), openOptions);
+        BufferPool.Buffer pooled = pool.pool.acquire(ioChunk)) {
+      ByteBuffer buf = pooled.byteBuffer();
+      for (long offset : offsets) {
+        buf.clear().limit(ioChunk);
+        int read = Math.min(channel.read(buf, offset), chunkSize);
+        total += scanner.count(buf, 0, Math.max(read, 0), COMMA);
+      }
+    }
+    return total;
+  }
+
+  /** Counts commas in the first {@code chunkSize} bytes of each chunk. */
+  private final class CommaCounter implements ChunkHandler {
+    int chunkSize;
+    int total;
+
+    CommaCounter reset(int chunkSize) {
+      this.chunkSize = chunkSize;
+      this.total = 0;
+      return this;
+    }
+
+    @Override
+    public void chunk(long offset, ByteBuffer data) {
+      int from = data.position();
+      total += scanner.count(data, from, Math.min(data.limit(), from + chunkSize), COMMA);
+    }
+  }
+
+  @Benchmark
+  @Threads(4)
+  public int readWholeFile_AsyncPipelined() throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+
+    try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(
+        Path.of(f.getAbsolutePath()), openOptions, null)) {
+      CommaCounter counter = commaCounter.reset(ioChunk);
+      asyncReader.readWhole(channel, counter);
+      return counter.total;
+    }
+  }
+
+  @Benchmark
+  @Threads(4)
+  public int randomRead_AsyncPipelined() throws IOException {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    long[] offsets = getRandomOffsets(f.length(), chunkSize, numRandomReads);
+
+    try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(
+        Path.of(f.getAbsolutePath()), openOptions, null)) {
+      CommaCounter counter = commaCounter.reset(chunkSize);
+      asyncReader.read(channel, offsets, counter);
+      return counter.total;
+    }
+  }
+
+  private static void checkErrno(int result, String path) throws IOException {
+    if (result < 0) {
+      throw new IOException("read of " + path + " failed: errno " + -result);
+    }
+  }
+
+  @Benchmark
+  public int randomRead_CompletableFuture(Fanout fanout) throws Exception {
     int threadCount = 16;
     List<CompletableFuture<Integer>> futures = new ArrayList<>();
 
@@ -237,10 +745,9 @@ public class IoBenchmark {
       CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> {
         int total = 0;
         try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(
-            Path.of(f.getAbsolutePath()),
-            StandardOpenOption.READ)) {
+            Path.of(f.getAbsolutePath()), openOptions, null)) {
 
-          ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+          ByteBuffer buffer = readBuffer(chunkSize);
           for (long offset : offsets) {
             int toRead = (int) Math.min(chunkSize, fileSize - offset);
 
@@ -248,17 +755,13 @@ public class IoBenchmark {
             Future<Integer> readFuture = channel.read(buffer, offset);
             int bytesRead = readFuture.get();
 
-            buffer.flip();
-            for (int k = 0; k < Math.min(bytesRead, toRead); k++) {
-              if (buffer.get() == ',')
-                total++;
-            }
+            total += scanner.count(buffer, 0, Math.max(0, Math.min(bytesRead, toRead)), COMMA);
           }
         } catch (Exception e) {
           throw new CompletionException(e);
         }
         return total;
-      }, executor);
+      }, fanout.executor);
 
       futures.add(future);
     }
@@ -269,4 +772,35 @@ public class IoBenchmark {
         .mapToInt(Integer::intValue)
         .sum();
   }
-}
\ No newline at end of file
+
+  /**
+   * One task per offset instead of per file: {@code inFlightReads} positional
+   * reads of one file, all submitted at once. Every task allocates its own
+   * chunk buffer, so 100k reads of 10 KB want a few GB of heap.
+   */
+  @Benchmark
+  @BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+  public int randomRead_PerOffset(Fanout fanout, PerOffsetFanout perOffset) throws Exception {
+    File f = files[ThreadLocalRandom.current().nextInt(files.length)];
+    long fileSize = f.length();
+    long[] offsets = getRandomOffsets(fileSize, chunkSize, perOffset.inFlightReads);
+
+    try (FileChannel channel = FileChannel.open(f.toPath(), openOptions)) {
+      List<Callable<Integer>> tasks = new ArrayList<>(offsets.length);
+      for (long offset : offsets) {
+        tasks.add(() -> {
+          // FileChannel reads heap buffers through an aligned temporary one in direct mode
+          ByteBuffer buf = ByteBuffer.allocate(ioChunk);
+          int read = Math.min(channel.read(buf, offset), chunkSize);
+          return scanner.count(buf, 0, Math.max(read, 0), COMMA);
+        });
+      }
+
+      int total = 0;
+      for (Future<Integer> result : fanout.executor.invokeAll(tasks)) {
+        total += result.get();
+      }
+      return total;
+    }
+  }
+}
@@ -9,5 +9,20 @@ public class IoUringBridge {
     }
   }
 
-  public static native int readOffsets(String filePath, long[] offsets, int chunkSize, byte[] buffer);
-}
\ No newline at end of file
+  public static final int DEFAULT_QUEUE_DEPTH = 32;
+
+  public static int readOffsets(String filePath, long[] offsets, int chunkSize, byte[] buffer) {
+    return readOffsets(filePath, offsets, chunkSize, DEFAULT_QUEUE_DEPTH, buffer);
+  }
+
+  /**
+   * Reads {@code chunkSize} bytes at each offset into
+   * {@code buffer[i * chunkSize]}, keeping up to {@code queueDepth} reads in
+   * flight on one io_uring.
+   *
+   * @return total bytes read, or a negative errno ({@code -42} where io_uring
+   *         is not available)
+   */
+  public static native int readOffsets(String filePath, long[] offsets, int chunkSize, int queueDepth,
+      byte[] buffer);
+}
@@ -0,0 +1,121 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import fi.lauripiispanen.benchmarks.ndjson.DeviceAggregator;
+import fi.lauripiispanen.benchmarks.ndjson.DeviceRecordParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code readWholeFile_*} strategies of {@link IoBenchmark} with real
+ * work instead of comma counting: every record is parsed by
+ * {@link DeviceRecordParser} and aggregated per device.
+ *
+ * The primary score is files per second; {@code records} is the end-to-end
+ * records per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class NdjsonPipelineBenchmark {
+
+  @Param({ "blobs" })
+  public String blobDir;
+
+  @Param({ "65536" })
+  public int bufferSize;
+
+  private File[] files;
+  private DeviceAggregator aggregator;
+  private DeviceRecordParser parser;
+  private byte[] heapBuffer;
+  private ByteBuffer directBuffer;
+
+  @State(Scope.Thread)
+  @AuxCounters(Type.OPERATIONS)
+  public static class Records {
+    public long records;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    File dir = new File(blobDir);
+    if (!dir.exists()) {
+      throw new RuntimeException("Run BlobGenerator first");
+    }
+    files = dir.listFiles((d, name) -> name.endsWith(".json"));
+    aggregator = new DeviceAggregator();
+    parser = new DeviceRecordParser(aggregator);
+    heapBuffer = new byte[bufferSize];
+    directBuffer = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  private File nextFile() {
+    aggregator.clear();
+    parser.reset();
+    return files[ThreadLocalRandom.current().nextInt(files.length)];
+  }
+
+  private long done(Records counter) {
+    parser.finish();
+    counter.records += parser.records();
+    return aggregator.checksum();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public long pipeline_FileInputStream(Records counter) throws IOException {
+    File f = nextFile();
+    try (FileInputStream in = new FileInputStream(f)) {
+      int read;
+      while ((read = in.read(heapBuffer)) != -1) {
+        parser.parse(heapBuffer, 0, read);
+      }
+    }
+    return done(counter);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public long pipeline_AsynchronousFileChannel(Records counter) throws Exception {
+    File f = nextFile();
+    try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = directBuffer;
+      long position = 0;
+      while (true) {
+        buffer.clear();
+        int read = channel.read(buffer, position).get();
+        if (read == -1) {
+          break;
+        }
+        buffer.flip();
+        parser.parse(buffer);
+        position += read;
+      }
+    }
+    return done(counter);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public long pipeline_MemoryMappedFile(Records counter) throws IOException {
+    File f = nextFile();
+    try (Arena arena = Arena.ofConfined();
+        FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+      MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+      parser.parse(segment);
+    }
+    return done(counter);
+  }
+}
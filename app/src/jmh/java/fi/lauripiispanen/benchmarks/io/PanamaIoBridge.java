@@ -0,0 +1,142 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout.PathElement;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * {@link IoUringBridge#readOffsets} without JNI: {@code open}/{@code pread}
+ * are called through {@code java.lang.foreign} downcalls and read straight
+ * into an off-heap {@link MemorySegment}, so there is no native library to
+ * build and nothing is copied into a {@code byte[]}.
+ *
+ * One blocking {@code pread} per offset; the point is the per-call cost of
+ * the downcall itself, which dominates at small chunk sizes.
+ *
+ * Also evicts files from the page cache with {@code posix_fadvise}, for
+ * cold-cache runs.
+ */
+public final class PanamaIoBridge {
+
+  private static final int O_RDONLY = 0;
+  private static final int O_DIRECT = switch (System.getProperty("os.arch")) {
+    case "aarch64", "arm" -> 0x10000;
+    default -> 0x4000;
+  };
+  private static final int POSIX_FADV_DONTNEED = 4;
+  private static final int EINTR = 4;
+
+  private static final Linker LINKER = Linker.nativeLinker();
+  private static final Linker.Option ERRNO_OPTION = Linker.Option.captureCallState("errno");
+  private static final StructLayout CALL_STATE = Linker.Option.captureStateLayout();
+  private static final VarHandle ERRNO = CALL_STATE.varHandle(PathElement.groupElement("errno"));
+
+  private static final MethodHandle OPEN = downcall("open",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT), ERRNO_OPTION);
+  private static final MethodHandle PREAD = downcall("pread",
+      FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG, JAVA_LONG), ERRNO_OPTION);
+  private static final MethodHandle CLOSE = downcall("close",
+      FunctionDescriptor.of(JAVA_INT, JAVA_INT));
+  // Returns the error number instead of setting errno
+  private static final MethodHandle FADVISE = downcall("posix_fadvise",
+      FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_LONG, JAVA_LONG, JAVA_INT));
+
+  private static MethodHandle downcall(String name, FunctionDescriptor descriptor, Linker.Option... options) {
+    MemorySegment symbol = LINKER.defaultLookup().find(name)
+        .orElseThrow(() -> new UnsatisfiedLinkError("libc symbol not found: " + name));
+    return LINKER.downcallHandle(symbol, descriptor, options);
+  }
+
+  private PanamaIoBridge() {
+  }
+
+  /**
+   * Reads {@code chunkSize} bytes at each offset into
+   * {@code buffer[i * chunkSize]}. Short reads at the end of the file are not
+   * retried.
+   *
+   * @return total bytes read, or a negative errno
+   */
+  public static int readOffsets(String filePath, long[] offsets, int chunkSize, MemorySegment buffer) {
+    return readOffsets(filePath, offsets, chunkSize, buffer, false);
+  }
+
+  /**
+   * As above, bypassing the page cache with {@code O_DIRECT} if
+   * {@code direct} is set. Offsets, {@code chunkSize} and the buffer address
+   * must then be aligned to the file system's block size, or the reads fail
+   * with {@code EINVAL}.
+   */
+  public static int readOffsets(String filePath, long[] offsets, int chunkSize, MemorySegment buffer,
+      boolean direct) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+    }
+    if (!buffer.isNative() || buffer.byteSize() < (long) offsets.length * chunkSize) {
+      throw new IllegalArgumentException("buffer must be native and hold " + offsets.length + " chunks: " + buffer);
+    }
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment state = arena.allocate(CALL_STATE);
+      int fd = (int) OPEN.invokeExact(state, arena.allocateUtf8String(filePath),
+          direct ? O_RDONLY | O_DIRECT : O_RDONLY);
+      if (fd < 0) {
+        return -(int) ERRNO.get(state);
+      }
+      try {
+        long total = 0;
+        for (int i = 0; i < offsets.length; i++) {
+          MemorySegment chunk = buffer.asSlice((long) i * chunkSize, chunkSize);
+          long read;
+          do {
+            read = (long) PREAD.invokeExact(state, fd, chunk, (long) chunkSize, offsets[i]);
+          } while (read < 0 && (int) ERRNO.get(state) == EINTR);
+          if (read < 0) {
+            return -(int) ERRNO.get(state);
+          }
+          total += read;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+      } finally {
+        int ignored = (int) CLOSE.invokeExact(fd);
+      }
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("downcall failed", t);
+    }
+  }
+
+  /**
+   * Asks the kernel to drop the file's clean pages from the page cache.
+   * Pages still mapped by some process stay.
+   *
+   * @return 0, or a negative errno
+   */
+  public static int dropCache(String filePath) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment state = arena.allocate(CALL_STATE);
+      int fd = (int) OPEN.invokeExact(state, arena.allocateUtf8String(filePath), O_RDONLY);
+      if (fd < 0) {
+        return -(int) ERRNO.get(state);
+      }
+      try {
+        return -(int) FADVISE.invokeExact(fd, 0L, 0L, POSIX_FADV_DONTNEED);
+      } finally {
+        int ignored = (int) CLOSE.invokeExact(fd);
+      }
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("downcall failed", t);
+    }
+  }
+}
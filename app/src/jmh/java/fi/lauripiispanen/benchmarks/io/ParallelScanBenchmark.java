@@ -0,0 +1,90 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import fi.lauripiispanen.benchmarks.ndjson.ParallelBlobScanner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One large blob, mapped once, scanned by {@link ParallelBlobScanner} on
+ * {@code parallelism} cores.
+ *
+ * {@code bytes} is the scan rate in bytes per second; divide by
+ * {@code parallelism} for per-core throughput. {@code countLines} only
+ * touches every byte, so where it stops scaling is where memory bandwidth
+ * saturates. Sweep up to the core count, e.g.
+ * {@code -p parallelism=1,2,4,8,16,32}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, warmups = 1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ParallelScanBenchmark {
+
+  @Param({ "blobs" })
+  public String blobDir;
+
+  @Param({ "1", "2", "4", "8" })
+  public int parallelism;
+
+  @Param({ "8388608" })
+  public long chunkBytes;
+
+  private Arena arena;
+  private MemorySegment segment;
+  private ForkJoinPool pool;
+  private ParallelBlobScanner scanner;
+
+  @State(Scope.Thread)
+  @AuxCounters(Type.OPERATIONS)
+  public static class Bytes {
+    public long bytes;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    File dir = new File(blobDir);
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+    if (files == null || files.length == 0) {
+      throw new RuntimeException("Run BlobGenerator first");
+    }
+    File largest = Arrays.stream(files).max(Comparator.comparingLong(File::length)).get();
+
+    arena = Arena.ofShared();
+    try (FileChannel channel = FileChannel.open(largest.toPath(), StandardOpenOption.READ)) {
+      segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+    }
+    pool = new ForkJoinPool(parallelism);
+    scanner = new ParallelBlobScanner(pool, chunkBytes);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+    arena.close();
+  }
+
+  @Benchmark
+  public long aggregate(Bytes counter) {
+    counter.bytes += segment.byteSize();
+    return scanner.aggregate(segment).checksum();
+  }
+
+  @Benchmark
+  public long countLines(Bytes counter) {
+    counter.bytes += segment.byteSize();
+    return scanner.countLines(segment);
+  }
+}
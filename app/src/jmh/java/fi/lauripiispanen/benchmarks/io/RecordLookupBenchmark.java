@@ -0,0 +1,210 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of fetching one whole record from a blob: through a
+ * {@link RecordIndex} by record number, against reading {@code chunkSize}
+ * bytes at a random offset and scanning forward to the next record, as the
+ * {@code randomRead_*} methods in {@link IoBenchmark} would have to.
+ *
+ * Index sidecars for the first {@code maxFiles} blobs are built into
+ * {@code blobDir/index} during setup unless one for the same stride is
+ * already there. {@code indexFootprint} reports their size per stride as
+ * the {@code indexBytes} and {@code dataBytes} counters.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RecordLookupBenchmark {
+
+  @Param({ "blobs" })
+  public String blobDir;
+
+  @Param({ "4" })
+  public int maxFiles;
+
+  @Param({ "10240" })
+  public int chunkSize;
+
+  private File[] files;
+  private FileChannel[] channels;
+  private long[] sizes;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    File dir = new File(blobDir);
+    File[] found = dir.listFiles((d, name) -> name.endsWith(".json"));
+    if (found == null || found.length == 0) {
+      throw new RuntimeException("Run BlobGenerator first");
+    }
+    Arrays.sort(found);
+    files = Arrays.copyOf(found, Math.min(maxFiles, found.length));
+
+    channels = new FileChannel[files.length];
+    sizes = new long[files.length];
+    for (int i = 0; i < files.length; i++) {
+      channels[i] = FileChannel.open(files[i].toPath(), StandardOpenOption.READ);
+      sizes[i] = channels[i].size();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    for (FileChannel channel : channels) {
+      channel.close();
+    }
+  }
+
+  /**
+   * The index sidecars. Kept apart so that only the indexed methods are
+   * swept over the stride.
+   */
+  @State(Scope.Benchmark)
+  public static class Indexes {
+    /** Records per index entry. */
+    @Param({ "1", "16", "256", "4096" })
+    public int stride;
+
+    RecordIndex[] indexes;
+    long maxGroupBytes;
+
+    @Setup(Level.Trial)
+    public void setup(RecordLookupBenchmark b) throws IOException {
+      Path outDir = new File(b.blobDir).toPath().resolve("index");
+      outDir.toFile().mkdirs();
+      indexes = new RecordIndex[b.files.length];
+      for (int i = 0; i < indexes.length; i++) {
+        File json = b.files[i];
+        Path out = outDir.resolve(json.getName().replace(".json", ".s" + stride + ".idx"));
+        if (!out.toFile().exists() || out.toFile().lastModified() < json.lastModified()) {
+          RecordIndex.build(json.toPath(), out, stride);
+        }
+        indexes[i] = RecordIndex.open(out);
+        maxGroupBytes = Math.max(maxGroupBytes, indexes[i].maxGroupBytes());
+      }
+      if (maxGroupBytes > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("stride too large for one read: " + stride);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      for (RecordIndex index : indexes) {
+        index.close();
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Group {
+    ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup(Indexes x) {
+      buffer = ByteBuffer.allocateDirect((int) x.maxGroupBytes);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Chunk {
+    ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup(RecordLookupBenchmark b) {
+      buffer = ByteBuffer.allocateDirect(b.chunkSize);
+    }
+  }
+
+  /** Sizes over all indexed blobs; assigned, not accumulated. */
+  @State(Scope.Thread)
+  @AuxCounters(Type.EVENTS)
+  public static class Footprint {
+    public long indexBytes;
+    public long dataBytes;
+  }
+
+  private static int countCommas(ByteBuffer buf) {
+    int total = 0;
+    for (int i = buf.position(); i < buf.limit(); i++) {
+      if (buf.get(i) == ',')
+        total++;
+    }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int lookup_Indexed(Indexes x, Group g) throws IOException {
+    int f = ThreadLocalRandom.current().nextInt(x.indexes.length);
+    RecordIndex index = x.indexes[f];
+    long k = ThreadLocalRandom.current().nextLong(index.recordCount());
+    index.readRecord(channels[f], k, g.buffer);
+    return countCommas(g.buffer);
+  }
+
+  /**
+   * An indexed lookup on one thread, in a mode that reports aux counters,
+   * to carry the index footprint into the results.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  public int indexFootprint(Indexes x, Group g, Footprint footprint) throws IOException {
+    long indexBytes = 0;
+    long dataBytes = 0;
+    for (RecordIndex index : x.indexes) {
+      indexBytes += index.byteSize();
+      dataBytes += index.dataSize();
+    }
+    footprint.indexBytes = indexBytes;
+    footprint.dataBytes = dataBytes;
+    return lookup_Indexed(x, g);
+  }
+
+  /**
+   * Skips the partial record at a random offset and returns the next one,
+   * reading further chunks when it does not fit in the first.
+   */
+  @Benchmark
+  @Threads(16)
+  public int lookup_ScanFromOffset(Chunk scratch) throws IOException {
+    int f = ThreadLocalRandom.current().nextInt(channels.length);
+    FileChannel channel = channels[f];
+    long size = sizes[f];
+    long position = ThreadLocalRandom.current().nextLong(size);
+    ByteBuffer chunk = scratch.buffer;
+    int total = 0;
+    boolean inRecord = false;
+    while (position < size) {
+      chunk.clear();
+      int read = channel.read(chunk, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        byte c = chunk.get(i);
+        if (c == '\n') {
+          if (inRecord) {
+            return total;
+          }
+          inRecord = true;
+        } else if (inRecord && c == ',') {
+          total++;
+        }
+      }
+      position += read;
+    }
+    return total;
+  }
+}
@@ -0,0 +1,147 @@
+package fi.lauripiispanen.benchmarks.map;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.Random;
+
+/**
+ * {@link HeapLongLongMap} and {@link OffHeapLongLongMap} vs. a boxed
+ * {@code HashMap<Long, Long>}.
+ *
+ * Keys are FNV-1a hashes of random 20-byte keys with 20% duplicates, like
+ * {@code precomputedHashes} in {@code CpuDivisionBenchmark}. The put
+ * benchmarks build a map from scratch; the get benchmarks look every key up
+ * in a prefilled map. Run with {@code -prof gc} to see the allocation rate.
+ * Every method reports the footprint of its map for {@code numEntries} as
+ * {@code footprintBytes}: the table size for the primitive maps, and for
+ * {@code HashMap} the heap growth measured around filling it in setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 2, warmups = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LongLongMapBenchmark {
+
+  private static final int KEY_LENGTH = 20;
+
+  @Param({ "50000", "1000000", "10000000" })
+  private int numEntries;
+
+  private long[] keys;
+
+  private HeapLongLongMap heapMap;
+  private OffHeapLongLongMap offHeapMap;
+  private HashMap<Long, Long> hashMap;
+  private long hashMapBytes;
+
+  /** Footprint of the map a method used; assigned, not accumulated. */
+  @State(Scope.Thread)
+  @AuxCounters(Type.EVENTS)
+  public static class Footprint {
+    public long footprintBytes;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(42);
+    keys = new long[numEntries];
+    byte[] key = new byte[KEY_LENGTH];
+
+    // Generate 80% unique keys and 20% duplicates to simulate real-world caching
+    int uniqueKeys = (int) (numEntries * 0.8);
+    for (int i = 0; i < uniqueKeys; i++) {
+      random.nextBytes(key);
+      keys[i] = Fnv1a.hash64(key);
+    }
+    for (int i = uniqueKeys; i < numEntries; i++) {
+      keys[i] = keys[random.nextInt(uniqueKeys)];
+    }
+
+    heapMap = new HeapLongLongMap(numEntries);
+    offHeapMap = new OffHeapLongLongMap(numEntries);
+    for (int i = 0; i < numEntries; i++) {
+      heapMap.put(keys[i], i);
+      offHeapMap.put(keys[i], i);
+    }
+    long before = usedHeap();
+    hashMap = new HashMap<>();
+    for (int i = 0; i < numEntries; i++) {
+      hashMap.put(keys[i], (long) i);
+    }
+    hashMapBytes = usedHeap() - before;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    offHeapMap.close();
+  }
+
+  @Benchmark
+  public long putHeap(Footprint footprint) {
+    HeapLongLongMap map = new HeapLongLongMap();
+    for (int i = 0; i < keys.length; i++) {
+      map.put(keys[i], i);
+    }
+    footprint.footprintBytes = map.footprintBytes();
+    return map.size();
+  }
+
+  @Benchmark
+  public long putOffHeap(Footprint footprint) {
+    try (OffHeapLongLongMap map = new OffHeapLongLongMap(16)) {
+      for (int i = 0; i < keys.length; i++) {
+        map.put(keys[i], i);
+      }
+      footprint.footprintBytes = map.footprintBytes();
+      return map.size();
+    }
+  }
+
+  @Benchmark
+  public long putHashMap(Footprint footprint) {
+    HashMap<Long, Long> map = new HashMap<>();
+    for (int i = 0; i < keys.length; i++) {
+      map.put(keys[i], (long) i);
+    }
+    footprint.footprintBytes = hashMapBytes;
+    return map.size();
+  }
+
+  @Benchmark
+  public void getHeap(Footprint footprint, Blackhole bh) {
+    footprint.footprintBytes = heapMap.footprintBytes();
+    for (long key : keys) {
+      bh.consume(heapMap.getOrDefault(key, -1L));
+    }
+  }
+
+  @Benchmark
+  public void getOffHeap(Footprint footprint, Blackhole bh) {
+    footprint.footprintBytes = offHeapMap.footprintBytes();
+    for (long key : keys) {
+      bh.consume(offHeapMap.getOrDefault(key, -1L));
+    }
+  }
+
+  @Benchmark
+  public void getHashMap(Footprint footprint, Blackhole bh) {
+    footprint.footprintBytes = hashMapBytes;
+    for (long key : keys) {
+      bh.consume(hashMap.getOrDefault(key, -1L));
+    }
+  }
+}
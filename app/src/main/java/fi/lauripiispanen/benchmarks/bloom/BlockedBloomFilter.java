@@ -0,0 +1,164 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Split-block Bloom filter: every key maps to a single 64-byte block of
+ * 8 {@code long}s (one cache line) and sets exactly one bit in each of them,
+ * so a lookup costs at most one cache miss regardless of k.
+ *
+ * The block is read and written with {@code jdk.incubator.vector} lanes. On
+ * hardware without 512-bit vectors the block is processed in two or more
+ * passes of the preferred species.
+ *
+ * Not thread-safe.
+ */
+public class BlockedBloomFilter {
+
+  /** Longs per block, 64 bytes. */
+  public static final int BLOCK_LONGS = 8;
+
+  /** Bits per block, also the number of bits set per key. */
+  public static final int BLOCK_BITS = BLOCK_LONGS * 64;
+
+  private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED.length() >= BLOCK_LONGS
+      ? LongVector.SPECIES_512
+      : LongVector.SPECIES_PREFERRED;
+
+  // Each lane picks its bit from a different 6-bit slice of the mixed hash.
+  // The low 16 bits are skipped as they only depend on the block index bits.
+  private static final long[] LANE_SHIFTS = { 16, 22, 28, 34, 40, 46, 52, 58 };
+
+  private static final long MIX = 0x9e3779b97f4a7c15L;
+
+  private final long[] bits;
+  private final long blockMask;
+
+  /**
+   * @param bitSize total size in bits, a power of two and at least one block
+   */
+  public BlockedBloomFilter(long bitSize) {
+    BloomFilter.checkBitSize(bitSize);
+    if (bitSize < BLOCK_BITS) {
+      throw new IllegalArgumentException("bitSize must hold at least one block: " + bitSize);
+    }
+    this.bits = new long[(int) (bitSize >>> 6)];
+    this.blockMask = bitSize / BLOCK_BITS - 1;
+  }
+
+  /**
+   * Sized like {@link BloomFilter#create(long, double)}. Since k is fixed at
+   * 8 and probes are confined to a block, the realised FPP is somewhat
+   * higher than that of a flat filter of the same size.
+   */
+  public static BlockedBloomFilter create(long expectedElements, double fpp) {
+    return new BlockedBloomFilter(Math.max(BLOCK_BITS, BloomFilter.optimalBitSize(expectedElements, fpp)));
+  }
+
+  public boolean put(byte[] key) {
+    return putHash(Fnv1a.hash64(key));
+  }
+
+  public boolean mightContain(byte[] key) {
+    return mightContainHash(Fnv1a.hash64(key));
+  }
+
+  public boolean putHash(long hash) {
+    int base = blockBase(hash);
+    LongVector mixed = LongVector.broadcast(SPECIES, hash * MIX);
+    boolean changed = false;
+    for (int lane = 0; lane < BLOCK_LONGS; lane += SPECIES.length()) {
+      LongVector mask = laneMask(mixed, lane);
+      LongVector block = LongVector.fromArray(SPECIES, bits, base + lane);
+      changed |= !block.and(mask).eq(mask).allTrue();
+      block.or(mask).intoArray(bits, base + lane);
+    }
+    return changed;
+  }
+
+  public boolean mightContainHash(long hash) {
+    int base = blockBase(hash);
+    LongVector mixed = LongVector.broadcast(SPECIES, hash * MIX);
+    for (int lane = 0; lane < BLOCK_LONGS; lane += SPECIES.length()) {
+      LongVector mask = laneMask(mixed, lane);
+      LongVector block = LongVector.fromArray(SPECIES, bits, base + lane);
+      if (!block.and(mask).eq(mask).allTrue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Scalar equivalent of {@link #putHash(long)}, kept for benchmarking. */
+  boolean putHashScalar(long hash) {
+    int base = blockBase(hash);
+    long mixed = hash * MIX;
+    long changed = 0;
+    for (int lane = 0; lane < BLOCK_LONGS; lane++) {
+      long bit = 1L << (mixed >>> LANE_SHIFTS[lane]);
+      long old = bits[base + lane];
+      bits[base + lane] = old | bit;
+      changed |= ~old & bit;
+    }
+    return changed != 0;
+  }
+
+  /** Scalar equivalent of {@link #mightContainHash(long)}, kept for benchmarking. */
+  boolean mightContainHashScalar(long hash) {
+    int base = blockBase(hash);
+    long mixed = hash * MIX;
+    for (int lane = 0; lane < BLOCK_LONGS; lane++) {
+      if ((bits[base + lane] & (1L << (mixed >>> LANE_SHIFTS[lane]))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int blockBase(long hash) {
+    return (int) (((hash ^ (hash >>> 32)) & blockMask) << 3);
+  }
+
+  private static LongVector laneMask(LongVector mixed, int lane) {
+    LongVector positions = mixed
+        .lanewise(VectorOperators.LSHR, LongVector.fromArray(SPECIES, LANE_SHIFTS, lane))
+        .and(63L);
+    return LongVector.broadcast(SPECIES, 1L).lanewise(VectorOperators.LSHL, positions);
+  }
+
+  public int putAll(byte[][] keys) {
+    int added = 0;
+    for (byte[] key : keys) {
+      if (putHash(Fnv1a.hash64(key))) {
+        added++;
+      }
+    }
+    return added;
+  }
+
+  public int mightContainAll(byte[][] keys, boolean[] results) {
+    if (results.length < keys.length) {
+      throw new IllegalArgumentException("results shorter than keys: " + results.length + " < " + keys.length);
+    }
+    int hits = 0;
+    for (int i = 0; i < keys.length; i++) {
+      boolean hit = mightContainHash(Fnv1a.hash64(keys[i]));
+      results[i] = hit;
+      if (hit) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+
+  public long bitSize() {
+    return (long) bits.length << 6;
+  }
+
+  public int numBlocks() {
+    return (int) (blockMask + 1);
+  }
+}
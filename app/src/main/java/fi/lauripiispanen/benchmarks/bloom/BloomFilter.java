@@ -0,0 +1,178 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter over a flat {@code long[]} bit array.
+ *
+ * The bit array size is always a power of two so probe indexes can be
+ * reduced with a mask instead of a modulo (see {@code CpuDivisionBenchmark}).
+ * All k probes are derived from a single 64-bit FNV-1a hash using double
+ * hashing: {@code index_i = (h1 + i * h2) & mask}.
+ *
+ * Not thread-safe.
+ */
+public class BloomFilter {
+
+  /** Largest bit array we can address with a {@code long[]}. */
+  public static final long MAX_BIT_SIZE = 1L << 36;
+
+  private final long[] bits;
+  private final long mask;
+  private final int numHashes;
+
+  public BloomFilter(long bitSize, int numHashes) {
+    checkBitSize(bitSize);
+    if (numHashes < 1) {
+      throw new IllegalArgumentException("numHashes must be positive: " + numHashes);
+    }
+    this.bits = new long[(int) (bitSize >>> 6)];
+    this.mask = bitSize - 1;
+    this.numHashes = numHashes;
+  }
+
+  /**
+   * Creates a filter sized for {@code expectedElements} insertions at the
+   * given false positive probability. The bit array is rounded up to the
+   * next power of two, so the actual FPP is usually lower than requested.
+   */
+  public static BloomFilter create(long expectedElements, double fpp) {
+    long bitSize = optimalBitSize(expectedElements, fpp);
+    return new BloomFilter(bitSize, optimalNumHashes(expectedElements, bitSize));
+  }
+
+  /** m = -n ln(p) / ln(2)^2, rounded up to a power of two. */
+  public static long optimalBitSize(long expectedElements, double fpp) {
+    if (expectedElements < 1) {
+      throw new IllegalArgumentException("expectedElements must be positive: " + expectedElements);
+    }
+    if (!(fpp > 0.0 && fpp < 1.0)) {
+      throw new IllegalArgumentException("fpp must be in (0, 1): " + fpp);
+    }
+    double bits = -expectedElements * Math.log(fpp) / (Math.log(2) * Math.log(2));
+    long bitSize = Math.max(64L, nextPowerOfTwo((long) Math.ceil(bits)));
+    checkBitSize(bitSize);
+    return bitSize;
+  }
+
+  /** k = (m / n) ln(2), at least one. */
+  public static int optimalNumHashes(long expectedElements, long bitSize) {
+    return Math.max(1, (int) Math.round((double) bitSize / expectedElements * Math.log(2)));
+  }
+
+  static long nextPowerOfTwo(long value) {
+    return value <= 1 ? 1 : Long.highestOneBit(value - 1) << 1;
+  }
+
+  static void checkBitSize(long bitSize) {
+    if (bitSize < 64 || bitSize > MAX_BIT_SIZE || Long.bitCount(bitSize) != 1) {
+      throw new IllegalArgumentException("bitSize must be a power of two in [64, 2^36]: " + bitSize);
+    }
+  }
+
+  public boolean put(byte[] key) {
+    return putHash(Fnv1a.hash64(key));
+  }
+
+  public boolean mightContain(byte[] key) {
+    return mightContainHash(Fnv1a.hash64(key));
+  }
+
+  /**
+   * Sets the k bits for a precomputed 64-bit hash.
+   *
+   * @return true if any bit changed, i.e. the key was definitely not present
+   */
+  public boolean putHash(long hash) {
+    // h1 folds like fnv1a64to32, so k = 1 probes the same bit as the inline benchmarks
+    long h1 = hash ^ (hash >>> 32);
+    // odd step guarantees distinct probes modulo a power of two
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    long[] bits = this.bits;
+    long changed = 0;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      int word = (int) (index >>> 6);
+      long bit = 1L << index; // shift distance is taken mod 64
+      long old = bits[word];
+      bits[word] = old | bit;
+      changed |= ~old & bit;
+    }
+    return changed != 0;
+  }
+
+  public boolean mightContainHash(long hash) {
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    long[] bits = this.bits;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Inserts all keys.
+   *
+   * @return number of keys that were definitely not present before insertion
+   */
+  public int putAll(byte[][] keys) {
+    int added = 0;
+    for (byte[] key : keys) {
+      if (putHash(Fnv1a.hash64(key))) {
+        added++;
+      }
+    }
+    return added;
+  }
+
+  /**
+   * Queries all keys, writing the per-key answer into {@code results}.
+   *
+   * @return number of keys that might be present
+   */
+  public int mightContainAll(byte[][] keys, boolean[] results) {
+    if (results.length < keys.length) {
+      throw new IllegalArgumentException("results shorter than keys: " + results.length + " < " + keys.length);
+    }
+    int hits = 0;
+    for (int i = 0; i < keys.length; i++) {
+      boolean hit = mightContainHash(Fnv1a.hash64(keys[i]));
+      results[i] = hit;
+      if (hit) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+
+  public void clear() {
+    Arrays.fill(bits, 0L);
+  }
+
+  public long bitSize() {
+    return mask + 1;
+  }
+
+  public int numHashes() {
+    return numHashes;
+  }
+
+  public long bitCount() {
+    long count = 0;
+    for (long word : bits) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  /** FPP estimated from the current fill ratio: (setBits / m)^k. */
+  public double approximateFpp() {
+    return Math.pow((double) bitCount() / bitSize(), numHashes);
+  }
+}
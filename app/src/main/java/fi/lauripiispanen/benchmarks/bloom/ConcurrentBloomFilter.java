@@ -0,0 +1,193 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Lock-free Bloom filter that many threads can insert into and query at the
+ * same time. Probing is identical to {@link BloomFilter}.
+ *
+ * Inserts set bits with {@code getAndBitwiseOr} on the word, but only after
+ * a plain read shows the bit is still clear: once a filter fills up most
+ * inserts then become pure reads and hot words stay in the shared state in
+ * every core's cache instead of bouncing between them. Queries are plain
+ * reads; a query racing an insert of the same key may miss it, which is the
+ * same answer it would have got a moment earlier.
+ *
+ * The filter can be split into shards. All probes of a key go to one shard
+ * and every shard is a separately allocated array, so shards never share
+ * cache lines with each other.
+ */
+public class ConcurrentBloomFilter {
+
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final long[][] shards;
+  private final int shardMask;
+  private final int shardShift;
+  private final long mask;
+  private final int numHashes;
+
+  public ConcurrentBloomFilter(long bitSize, int numHashes) {
+    this(bitSize, numHashes, 1);
+  }
+
+  /**
+   * @param bitSize   total size in bits, a power of two
+   * @param numShards number of independent shards, a power of two
+   */
+  public ConcurrentBloomFilter(long bitSize, int numHashes, int numShards) {
+    BloomFilter.checkBitSize(bitSize);
+    if (numHashes < 1) {
+      throw new IllegalArgumentException("numHashes must be positive: " + numHashes);
+    }
+    if (numShards < 1 || Integer.bitCount(numShards) != 1 || bitSize / numShards < 64) {
+      throw new IllegalArgumentException("numShards must be a power of two and leave at least 64 bits per shard: " + numShards);
+    }
+    long shardBits = bitSize / numShards;
+    this.shards = new long[numShards][];
+    for (int i = 0; i < numShards; i++) {
+      shards[i] = new long[(int) (shardBits >>> 6)];
+    }
+    this.shardMask = numShards - 1;
+    // Shard is picked from the top bits, probes use the low bits
+    this.shardShift = 64 - Integer.numberOfTrailingZeros(numShards);
+    this.mask = shardBits - 1;
+    this.numHashes = numHashes;
+  }
+
+  public static ConcurrentBloomFilter create(long expectedElements, double fpp, int numShards) {
+    long bitSize = BloomFilter.optimalBitSize(expectedElements, fpp);
+    return new ConcurrentBloomFilter(bitSize, BloomFilter.optimalNumHashes(expectedElements, bitSize), numShards);
+  }
+
+  private long[] shardFor(long hash) {
+    return shardMask == 0 ? shards[0] : shards[(int) (hash >>> shardShift) & shardMask];
+  }
+
+  public boolean put(byte[] key) {
+    return putHash(Fnv1a.hash64(key));
+  }
+
+  public boolean mightContain(byte[] key) {
+    return mightContainHash(Fnv1a.hash64(key));
+  }
+
+  /**
+   * @return true if this call set at least one bit
+   */
+  public boolean putHash(long hash) {
+    long[] bits = shardFor(hash);
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    boolean changed = false;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      int word = (int) (index >>> 6);
+      long bit = 1L << index;
+      if ((bits[word] & bit) == 0) {
+        long old = (long) WORDS.getAndBitwiseOr(bits, word, bit);
+        changed |= (old & bit) == 0;
+      }
+    }
+    return changed;
+  }
+
+  /** Always issues the atomic OR, even if the bit is already set. */
+  boolean putHashUnconditional(long hash) {
+    long[] bits = shardFor(hash);
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    boolean changed = false;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      long bit = 1L << index;
+      long old = (long) WORDS.getAndBitwiseOr(bits, (int) (index >>> 6), bit);
+      changed |= (old & bit) == 0;
+    }
+    return changed;
+  }
+
+  /** Sets bits with an explicit compare-and-set retry loop. */
+  boolean putHashCas(long hash) {
+    long[] bits = shardFor(hash);
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    boolean changed = false;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      int word = (int) (index >>> 6);
+      long bit = 1L << index;
+      long old;
+      do {
+        old = (long) WORDS.getVolatile(bits, word);
+        if ((old & bit) != 0) {
+          break;
+        }
+      } while (!WORDS.compareAndSet(bits, word, old, old | bit));
+      changed |= (old & bit) == 0;
+    }
+    return changed;
+  }
+
+  public boolean mightContainHash(long hash) {
+    long[] bits = shardFor(hash);
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int putAll(byte[][] keys) {
+    int added = 0;
+    for (byte[] key : keys) {
+      if (putHash(Fnv1a.hash64(key))) {
+        added++;
+      }
+    }
+    return added;
+  }
+
+  public int mightContainAll(byte[][] keys, boolean[] results) {
+    if (results.length < keys.length) {
+      throw new IllegalArgumentException("results shorter than keys: " + results.length + " < " + keys.length);
+    }
+    int hits = 0;
+    for (int i = 0; i < keys.length; i++) {
+      boolean hit = mightContainHash(Fnv1a.hash64(keys[i]));
+      results[i] = hit;
+      if (hit) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+
+  /** Not atomic with respect to concurrent inserts. */
+  public void clear() {
+    for (long[] shard : shards) {
+      for (int i = 0; i < shard.length; i++) {
+        WORDS.setOpaque(shard, i, 0L);
+      }
+    }
+  }
+
+  public long bitSize() {
+    return (mask + 1) * shards.length;
+  }
+
+  public int numHashes() {
+    return numHashes;
+  }
+
+  public int numShards() {
+    return shards.length;
+  }
+}
@@ -0,0 +1,127 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+
+/**
+ * Bloom filter with 4-bit counters instead of bits, so keys can be deleted.
+ *
+ * Sixteen counters are packed into each {@code long}. Probing is identical
+ * to {@link BloomFilter}, with the counter count a power of two. A counter
+ * that reaches 15 sticks there: it is never decremented again, which trades
+ * a few permanent false positives for never producing a false negative.
+ *
+ * Uses 4x the memory of a {@link BloomFilter} with the same FPP. Not
+ * thread-safe.
+ */
+public class CountingBloomFilter {
+
+  private static final int MAX_COUNT = 15;
+
+  private final long[] counters;
+  private final long mask;
+  private final int numHashes;
+
+  /**
+   * @param numCounters number of 4-bit counters, a power of two
+   */
+  public CountingBloomFilter(long numCounters, int numHashes) {
+    if (numCounters < 16 || numCounters > BloomFilter.MAX_BIT_SIZE / 4 || Long.bitCount(numCounters) != 1) {
+      throw new IllegalArgumentException("numCounters must be a power of two in [16, 2^34]: " + numCounters);
+    }
+    if (numHashes < 1) {
+      throw new IllegalArgumentException("numHashes must be positive: " + numHashes);
+    }
+    this.counters = new long[(int) (numCounters >>> 4)];
+    this.mask = numCounters - 1;
+    this.numHashes = numHashes;
+  }
+
+  public static CountingBloomFilter create(long expectedElements, double fpp) {
+    long numCounters = Math.max(16L, BloomFilter.optimalBitSize(expectedElements, fpp));
+    return new CountingBloomFilter(numCounters, BloomFilter.optimalNumHashes(expectedElements, numCounters));
+  }
+
+  public boolean put(byte[] key) {
+    return putHash(Fnv1a.hash64(key));
+  }
+
+  public boolean mightContain(byte[] key) {
+    return mightContainHash(Fnv1a.hash64(key));
+  }
+
+  public boolean delete(byte[] key) {
+    return deleteHash(Fnv1a.hash64(key));
+  }
+
+  /**
+   * @return true if any counter was zero before, i.e. the key was definitely not present
+   */
+  public boolean putHash(long hash) {
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    long[] counters = this.counters;
+    boolean added = false;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      int word = (int) (index >>> 4);
+      int shift = (int) (index & 15) << 2;
+      long count = (counters[word] >>> shift) & 0xf;
+      added |= count == 0;
+      if (count < MAX_COUNT) {
+        counters[word] += 1L << shift;
+      }
+    }
+    return added;
+  }
+
+  public boolean mightContainHash(long hash) {
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    long[] counters = this.counters;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      if ((counters[(int) (index >>> 4)] & (0xfL << ((index & 15) << 2))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Removes one occurrence of a key. Deleting a key that was never inserted
+   * but happens to be a false positive corrupts the filter, as with any
+   * counting Bloom filter.
+   *
+   * @return false if the key was definitely not present, in which case nothing changes
+   */
+  public boolean deleteHash(long hash) {
+    if (!mightContainHash(hash)) {
+      return false;
+    }
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    long[] counters = this.counters;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      int word = (int) (index >>> 4);
+      int shift = (int) (index & 15) << 2;
+      if (((counters[word] >>> shift) & 0xf) < MAX_COUNT) {
+        counters[word] -= 1L << shift;
+      }
+    }
+    return true;
+  }
+
+  public long numCounters() {
+    return mask + 1;
+  }
+
+  public int numHashes() {
+    return numHashes;
+  }
+
+  /** Memory used by the counters, in bits. */
+  public long bitSize() {
+    return (mask + 1) * 4;
+  }
+}
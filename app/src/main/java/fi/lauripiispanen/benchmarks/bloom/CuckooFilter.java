@@ -0,0 +1,223 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+
+/**
+ * Cuckoo filter (Fan et al., 2014) with 16-bit fingerprints and buckets of
+ * four, so that one bucket is exactly one {@code long}. The bucket count is a
+ * power of two and both candidate buckets are found with masking, as in
+ * {@code indexingWithBitwiseAnd}.
+ *
+ * Lookups compare all four fingerprints of a bucket at once with SWAR
+ * arithmetic on the packed word. Unlike a Bloom filter, keys can be deleted.
+ *
+ * Once an insert runs out of kicks the evicted fingerprint is parked in a
+ * single victim slot and the filter reports itself full: further inserts
+ * fail until something is deleted. Not thread-safe.
+ */
+public class CuckooFilter {
+
+  public static final int SLOTS_PER_BUCKET = 4;
+  public static final int FINGERPRINT_BITS = 16;
+
+  private static final int MAX_KICKS = 500;
+  private static final long LANES_LOW = 0x0001000100010001L;
+  private static final long LANES_HIGH = 0x8000800080008000L;
+
+  private final long[] buckets;
+  private final int mask;
+  private long size;
+  private long random = 0x2545f4914f6cdd1dL;
+
+  private boolean hasVictim;
+  private int victimIndex;
+  private int victimFingerprint;
+
+  /**
+   * @param numBuckets number of 4-slot buckets, a power of two
+   */
+  public CuckooFilter(int numBuckets) {
+    if (numBuckets < 2 || Integer.bitCount(numBuckets) != 1) {
+      throw new IllegalArgumentException("numBuckets must be a power of two >= 2: " + numBuckets);
+    }
+    this.buckets = new long[numBuckets];
+    this.mask = numBuckets - 1;
+  }
+
+  /** Sized for a load factor of at most 95%. */
+  public static CuckooFilter create(long expectedElements) {
+    long buckets = (long) Math.ceil(expectedElements / (SLOTS_PER_BUCKET * 0.95));
+    long numBuckets = BloomFilter.nextPowerOfTwo(Math.max(2, buckets));
+    if (numBuckets > 1 << 30) {
+      throw new IllegalArgumentException("too many elements: " + expectedElements);
+    }
+    return new CuckooFilter((int) numBuckets);
+  }
+
+  public boolean put(byte[] key) {
+    return putHash(Fnv1a.hash64(key));
+  }
+
+  public boolean mightContain(byte[] key) {
+    return mightContainHash(Fnv1a.hash64(key));
+  }
+
+  public boolean delete(byte[] key) {
+    return deleteHash(Fnv1a.hash64(key));
+  }
+
+  private static int fingerprint(long hash) {
+    int fp = (int) (hash >>> 48);
+    // zero marks an empty slot
+    return fp == 0 ? 1 : fp;
+  }
+
+  private int index(long hash) {
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private int altIndex(int index, int fingerprint) {
+    // xor makes this its own inverse: altIndex(altIndex(i, f), f) == i
+    return (index ^ (fingerprint * 0x5bd1e995)) & mask;
+  }
+
+  /** High bit of every 16-bit lane that is zero; the lowest one is exact. */
+  private static long zeroLanes(long word) {
+    return (word - LANES_LOW) & ~word & LANES_HIGH;
+  }
+
+  private static boolean bucketContains(long bucket, int fingerprint) {
+    return zeroLanes(bucket ^ (fingerprint * LANES_LOW)) != 0;
+  }
+
+  private boolean tryInsert(int index, int fingerprint) {
+    long bucket = buckets[index];
+    long empty = zeroLanes(bucket);
+    if (empty == 0) {
+      return false;
+    }
+    int shift = Long.numberOfTrailingZeros(empty) - (FINGERPRINT_BITS - 1);
+    buckets[index] = bucket | ((long) fingerprint << shift);
+    return true;
+  }
+
+  private boolean tryRemove(int index, int fingerprint) {
+    long bucket = buckets[index];
+    long match = zeroLanes(bucket ^ (fingerprint * LANES_LOW));
+    if (match == 0) {
+      return false;
+    }
+    int shift = Long.numberOfTrailingZeros(match) - (FINGERPRINT_BITS - 1);
+    buckets[index] = bucket & ~(0xffffL << shift);
+    return true;
+  }
+
+  private int nextRandom() {
+    // xorshift64, only used to pick which entry to kick
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return (int) random;
+  }
+
+  /**
+   * @return false if the filter is full and the key could not be stored
+   */
+  public boolean putHash(long hash) {
+    if (hasVictim) {
+      return false;
+    }
+    int fp = fingerprint(hash);
+    int i1 = index(hash);
+    int i2 = altIndex(i1, fp);
+    if (tryInsert(i1, fp) || tryInsert(i2, fp)) {
+      size++;
+      return true;
+    }
+
+    int index = (nextRandom() & 1) == 0 ? i1 : i2;
+    for (int kick = 0; kick < MAX_KICKS; kick++) {
+      int shift = (nextRandom() & (SLOTS_PER_BUCKET - 1)) * FINGERPRINT_BITS;
+      long bucket = buckets[index];
+      int evicted = (int) (bucket >>> shift) & 0xffff;
+      buckets[index] = (bucket & ~(0xffffL << shift)) | ((long) fp << shift);
+      fp = evicted;
+      index = altIndex(index, fp);
+      if (tryInsert(index, fp)) {
+        size++;
+        return true;
+      }
+    }
+
+    hasVictim = true;
+    victimIndex = index;
+    victimFingerprint = fp;
+    size++;
+    return true;
+  }
+
+  public boolean mightContainHash(long hash) {
+    int fp = fingerprint(hash);
+    int i1 = index(hash);
+    int i2 = altIndex(i1, fp);
+    return bucketContains(buckets[i1], fp)
+        || bucketContains(buckets[i2], fp)
+        || (hasVictim && victimFingerprint == fp && (victimIndex == i1 || victimIndex == i2));
+  }
+
+  /**
+   * Removes one copy of the key's fingerprint. Only delete keys that were
+   * actually inserted, otherwise a colliding key may be removed instead.
+   *
+   * @return false if the fingerprint was not found
+   */
+  public boolean deleteHash(long hash) {
+    int fp = fingerprint(hash);
+    int i1 = index(hash);
+    int i2 = altIndex(i1, fp);
+    if (tryRemove(i1, fp) || tryRemove(i2, fp)) {
+      size--;
+      if (hasVictim) {
+        // a slot just freed up, give the parked fingerprint another chance
+        hasVictim = false;
+        size--;
+        reinsert(victimIndex, victimFingerprint);
+      }
+      return true;
+    }
+    if (hasVictim && victimFingerprint == fp && (victimIndex == i1 || victimIndex == i2)) {
+      hasVictim = false;
+      size--;
+      return true;
+    }
+    return false;
+  }
+
+  private void reinsert(int index, int fp) {
+    if (tryInsert(index, fp) || tryInsert(altIndex(index, fp), fp)) {
+      size++;
+      return;
+    }
+    hasVictim = true;
+    victimIndex = index;
+    victimFingerprint = fp;
+    size++;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public boolean isFull() {
+    return hasVictim;
+  }
+
+  public int numBuckets() {
+    return mask + 1;
+  }
+
+  /** Memory used by the table, in bits. */
+  public long bitSize() {
+    return (long) buckets.length * 64;
+  }
+}
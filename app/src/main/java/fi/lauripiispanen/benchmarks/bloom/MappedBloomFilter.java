@@ -0,0 +1,229 @@
+package fi.lauripiispanen.benchmarks.bloom;
+
+import fi.lauripiispanen.benchmarks.hash.Fnv1a;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Persistent Bloom filter whose bit array lives in a memory-mapped file.
+ *
+ * Opening an existing filter only maps the file, so it is ready to query
+ * immediately and the page cache fills in lazily on first access. The bits
+ * are off-heap and invisible to the GC. Several processes can map the same
+ * file read-only; a single writer maps it read-write and calls
+ * {@link #flush()} to make its inserts durable.
+ *
+ * File layout (native byte order):
+ * <pre>
+ *   0  magic      long
+ *   8  version    int
+ *  12  numHashes  int
+ *  16  bitSize    long
+ *  24  seed       long
+ *  32  reserved   (pad to 64 bytes)
+ *  64  bits       bitSize / 8 bytes
+ * </pre>
+ * The header is a full cache line so that the bit array stays 64-byte aligned.
+ *
+ * Probing is identical to {@link BloomFilter}, with the key hash seeded by
+ * {@code seed}. Not thread-safe for writes.
+ */
+public class MappedBloomFilter implements AutoCloseable {
+
+  public static final long MAGIC = 0x4d4150424c4f4f4dL; // "MAPBLOOM"
+  public static final int VERSION = 1;
+  public static final int HEADER_BYTES = 64;
+
+  private static final ValueLayout.OfLong WORD = ValueLayout.JAVA_LONG;
+
+  private final Arena arena;
+  private final MemorySegment file;
+  private final MemorySegment bits;
+  private final boolean readOnly;
+  private final long mask;
+  private final int numHashes;
+  private final long seed;
+
+  private MappedBloomFilter(Arena arena, MemorySegment file, boolean readOnly) {
+    this.arena = arena;
+    this.file = file;
+    this.readOnly = readOnly;
+    if (file.byteSize() < HEADER_BYTES || file.get(WORD, 0) != MAGIC) {
+      throw new IllegalArgumentException("not a bloom filter file (bad magic or byte order)");
+    }
+    int version = file.get(ValueLayout.JAVA_INT, 8);
+    if (version != VERSION) {
+      throw new IllegalArgumentException("unsupported bloom filter file version: " + version);
+    }
+    this.numHashes = file.get(ValueLayout.JAVA_INT, 12);
+    long bitSize = file.get(WORD, 16);
+    this.seed = file.get(WORD, 24);
+    BloomFilter.checkBitSize(bitSize);
+    if (numHashes < 1) {
+      throw new IllegalArgumentException("corrupt header, numHashes: " + numHashes);
+    }
+    if (file.byteSize() != HEADER_BYTES + bitSize / 8) {
+      throw new IllegalArgumentException("file size does not match header: " + file.byteSize());
+    }
+    this.mask = bitSize - 1;
+    this.bits = file.asSlice(HEADER_BYTES);
+  }
+
+  /**
+   * Creates (or truncates) {@code path} and maps it read-write.
+   */
+  public static MappedBloomFilter create(Path path, long bitSize, int numHashes, long seed) throws IOException {
+    BloomFilter.checkBitSize(bitSize);
+    if (numHashes < 1) {
+      throw new IllegalArgumentException("numHashes must be positive: " + numHashes);
+    }
+    long fileSize = HEADER_BYTES + bitSize / 8;
+    Arena arena = Arena.ofShared();
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // Grow the file sparsely; untouched pages read back as zero bits
+      channel.write(ByteBuffer.wrap(new byte[1]), fileSize - 1);
+      MemorySegment file = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize, arena);
+      file.set(WORD, 0, MAGIC);
+      file.set(ValueLayout.JAVA_INT, 8, VERSION);
+      file.set(ValueLayout.JAVA_INT, 12, numHashes);
+      file.set(WORD, 16, bitSize);
+      file.set(WORD, 24, seed);
+      return new MappedBloomFilter(arena, file, false);
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  public static MappedBloomFilter create(Path path, long expectedElements, double fpp) throws IOException {
+    long bitSize = BloomFilter.optimalBitSize(expectedElements, fpp);
+    return create(path, bitSize, BloomFilter.optimalNumHashes(expectedElements, bitSize), 0L);
+  }
+
+  /**
+   * Maps an existing filter file. Read-only mappings can be shared by any
+   * number of processes.
+   */
+  public static MappedBloomFilter open(Path path, boolean readOnly) throws IOException {
+    Arena arena = Arena.ofShared();
+    try (FileChannel channel = readOnly
+        ? FileChannel.open(path, StandardOpenOption.READ)
+        : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+      MemorySegment file = channel.map(mode, 0, channel.size(), arena);
+      return new MappedBloomFilter(arena, file, readOnly);
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  public boolean put(byte[] key) {
+    return putHash(Fnv1a.hash64(key, seed));
+  }
+
+  public boolean mightContain(byte[] key) {
+    return mightContainHash(Fnv1a.hash64(key, seed));
+  }
+
+  /**
+   * @param hash 64-bit hash computed with this filter's {@link #seed()}
+   */
+  public boolean putHash(long hash) {
+    if (readOnly) {
+      throw new IllegalStateException("filter was opened read-only");
+    }
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    MemorySegment bits = this.bits;
+    long changed = 0;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      long word = index >>> 6;
+      long bit = 1L << index;
+      long old = bits.getAtIndex(WORD, word);
+      if ((old & bit) == 0) {
+        // Only dirty the page when the bit actually changes
+        bits.setAtIndex(WORD, word, old | bit);
+        changed |= bit;
+      }
+    }
+    return changed != 0;
+  }
+
+  public boolean mightContainHash(long hash) {
+    long h1 = hash ^ (hash >>> 32);
+    long h2 = Long.rotateLeft(hash, 32) | 1L;
+    MemorySegment bits = this.bits;
+    for (int i = 0; i < numHashes; i++) {
+      long index = (h1 + i * h2) & mask;
+      if ((bits.getAtIndex(WORD, index >>> 6) & (1L << index)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int putAll(byte[][] keys) {
+    int added = 0;
+    for (byte[] key : keys) {
+      if (putHash(Fnv1a.hash64(key, seed))) {
+        added++;
+      }
+    }
+    return added;
+  }
+
+  public int mightContainAll(byte[][] keys, boolean[] results) {
+    if (results.length < keys.length) {
+      throw new IllegalArgumentException("results shorter than keys: " + results.length + " < " + keys.length);
+    }
+    int hits = 0;
+    for (int i = 0; i < keys.length; i++) {
+      boolean hit = mightContainHash(Fnv1a.hash64(keys[i], seed));
+      results[i] = hit;
+      if (hit) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+
+  /** Writes dirty pages back to the file. */
+  public void flush() {
+    if (!readOnly) {
+      file.force();
+    }
+  }
+
+  /** Unmaps the file. Does not flush. */
+  @Override
+  public void close() {
+    arena.close();
+  }
+
+  public long bitSize() {
+    return mask + 1;
+  }
+
+  public int numHashes() {
+    return numHashes;
+  }
+
+  public long seed() {
+    return seed;
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+}
@@ -0,0 +1,191 @@
+package fi.lauripiispanen.benchmarks.columnar;
+
+import fi.lauripiispanen.benchmarks.ndjson.RecordSink;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped reader for the columnar alternative to the JSON blobs.
+ *
+ * Records are stored in row groups of up to {@code rowGroupSize} rows. Each
+ * group holds three columns back to back: {@code val} as {@code int}
+ * hundredths, device ids as 2- or 4-byte codes into a file-wide
+ * dictionary, and timestamps as zigzag varint deltas from the group's
+ * first timestamp. The row group index keeps each group's timestamp and
+ * {@code val} range, so range scans only touch the groups that can match.
+ *
+ * File layout (native byte order):
+ * <pre>
+ *   0  magic            long
+ *   8  version          int
+ *  12  rowGroupSize     int
+ *  16  rowCount         long
+ *  24  rowGroupCount    int
+ *  28  dictionarySize   int
+ *  32  dictionaryOffset long
+ *  40  indexOffset      long
+ *  48  reserved         (pad to 64 bytes)
+ *  64  row groups, each 8-byte aligned
+ *      dictionary       int[dictionarySize], padded to 8 bytes
+ *      index            one 48-byte entry per group:
+ *                       offset long, rows int, codeWidth int, firstTs long,
+ *                       minTs long, maxTs long, minVal int, maxVal int
+ * </pre>
+ * Written by {@link ColumnarBlobWriter}.
+ */
+public final class ColumnarBlob implements AutoCloseable {
+
+  public static final long MAGIC = 0x31424f4c42524c43L; // "CLRBLOB1"
+  public static final int VERSION = 1;
+  public static final int HEADER_BYTES = 64;
+  static final int GROUP_ENTRY_BYTES = 48;
+  static final int MAX_VARINT_BYTES = 10;
+
+  private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+  private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT;
+  private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+  private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+
+  private final Arena arena;
+  private final MemorySegment file;
+  private final long rowCount;
+  private final int rowGroupCount;
+  private final int[] dictionary;
+  private final MemorySegment index;
+
+  private ColumnarBlob(Arena arena, MemorySegment file) {
+    this.arena = arena;
+    this.file = file;
+    if (file.byteSize() < HEADER_BYTES || file.get(LONG, 0) != MAGIC) {
+      throw new IllegalArgumentException("not a columnar blob (bad magic or byte order)");
+    }
+    int version = file.get(INT, 8);
+    if (version != VERSION) {
+      throw new IllegalArgumentException("unsupported columnar blob version: " + version);
+    }
+    this.rowCount = file.get(LONG, 16);
+    this.rowGroupCount = file.get(INT, 24);
+    int dictionarySize = file.get(INT, 28);
+    long dictionaryOffset = file.get(LONG, 32);
+    long indexOffset = file.get(LONG, 40);
+    this.dictionary = file.asSlice(dictionaryOffset, (long) dictionarySize * 4).toArray(INT);
+    this.index = file.asSlice(indexOffset, (long) rowGroupCount * GROUP_ENTRY_BYTES);
+  }
+
+  /**
+   * Maps {@code path} read-only. The mapping lives in a shared arena, so the
+   * blob can be scanned from several threads.
+   */
+  public static ColumnarBlob open(Path path) throws IOException {
+    Arena arena = Arena.ofShared();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new ColumnarBlob(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  public long rowCount() {
+    return rowCount;
+  }
+
+  public int rowGroupCount() {
+    return rowGroupCount;
+  }
+
+  public long byteSize() {
+    return file.byteSize();
+  }
+
+  public long minTs() {
+    long min = Long.MAX_VALUE;
+    for (int g = 0; g < rowGroupCount; g++) {
+      min = Math.min(min, index.get(LONG, entry(g) + 24));
+    }
+    return min;
+  }
+
+  public long maxTs() {
+    long max = Long.MIN_VALUE;
+    for (int g = 0; g < rowGroupCount; g++) {
+      max = Math.max(max, index.get(LONG, entry(g) + 32));
+    }
+    return max;
+  }
+
+  /**
+   * Feeds every record to {@code sink}.
+   *
+   * @return bytes of row group data read
+   */
+  public long scan(RecordSink sink) {
+    return scan(Long.MIN_VALUE, Long.MAX_VALUE, sink);
+  }
+
+  /**
+   * Feeds records with {@code fromTs <= ts <= toTs} to {@code sink}, skipping
+   * row groups whose timestamp range does not overlap.
+   *
+   * @return bytes of row group data read
+   */
+  public long scan(long fromTs, long toTs, RecordSink sink) {
+    long bytesRead = 0;
+    for (int g = 0; g < rowGroupCount; g++) {
+      long e = entry(g);
+      if (index.get(LONG, e + 32) < fromTs || index.get(LONG, e + 24) > toTs) {
+        continue;
+      }
+      long offset = index.get(LONG, e);
+      int rows = index.get(INT, e + 8);
+      int codeWidth = index.get(INT, e + 12);
+      long ts = index.get(LONG, e + 16);
+      boolean filter = index.get(LONG, e + 24) < fromTs || index.get(LONG, e + 32) > toTs;
+
+      long valAt = offset;
+      long codeAt = valAt + (long) rows * 4;
+      long p = codeAt + (long) rows * codeWidth;
+      for (int r = 0; r < rows; r++) {
+        // zigzag varint delta
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+          b = file.get(BYTE, p++);
+          v |= (long) (b & 0x7f) << shift;
+          shift += 7;
+        } while (b < 0);
+        ts += (v >>> 1) ^ -(v & 1);
+
+        if (filter && (ts < fromTs || ts > toTs)) {
+          continue;
+        }
+        int code = codeWidth == 2
+            ? Short.toUnsignedInt(file.get(SHORT, codeAt + (long) r * 2))
+            : file.get(INT, codeAt + (long) r * 4);
+        sink.accept(dictionary[code], ts, file.get(INT, valAt + (long) r * 4));
+      }
+      bytesRead += groupEnd(g) - offset;
+    }
+    return bytesRead;
+  }
+
+  private long groupEnd(int g) {
+    return g + 1 < rowGroupCount ? index.get(LONG, entry(g + 1)) : file.get(LONG, 32);
+  }
+
+  private static long entry(int g) {
+    return (long) g * GROUP_ENTRY_BYTES;
+  }
+
+  @Override
+  public void close() {
+    arena.close();
+  }
+}
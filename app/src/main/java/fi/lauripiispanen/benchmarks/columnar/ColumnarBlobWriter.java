@@ -0,0 +1,201 @@
+package fi.lauripiispanen.benchmarks.columnar;
+
+import fi.lauripiispanen.benchmarks.map.HeapLongLongMap;
+import fi.lauripiispanen.benchmarks.ndjson.RecordSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes device records in the {@link ColumnarBlob} format. Records are
+ * buffered one row group at a time; the dictionary, row group index and
+ * header are written on {@link #close()}.
+ */
+public final class ColumnarBlobWriter implements RecordSink, AutoCloseable {
+
+  public static final int DEFAULT_ROW_GROUP_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  private final int rowGroupSize;
+
+  private final int[] codes;
+  private final long[] timestamps;
+  private final int[] vals;
+  private int rows;
+
+  private final HeapLongLongMap codeByDevice = new HeapLongLongMap();
+  private int[] dictionary = new int[1024];
+  private int dictionarySize;
+
+  private long rowCount;
+  private long position = ColumnarBlob.HEADER_BYTES;
+  private ByteBuffer index = ByteBuffer.allocate(64 * ColumnarBlob.GROUP_ENTRY_BYTES).order(ByteOrder.nativeOrder());
+  private int rowGroupCount;
+  private ByteBuffer groupBuffer;
+
+  public ColumnarBlobWriter(Path path) throws IOException {
+    this(path, DEFAULT_ROW_GROUP_SIZE);
+  }
+
+  public ColumnarBlobWriter(Path path, int rowGroupSize) throws IOException {
+    if (rowGroupSize < 1) {
+      throw new IllegalArgumentException("rowGroupSize must be positive: " + rowGroupSize);
+    }
+    this.rowGroupSize = rowGroupSize;
+    this.codes = new int[rowGroupSize];
+    this.timestamps = new long[rowGroupSize];
+    this.vals = new int[rowGroupSize];
+    this.channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+  }
+
+  /**
+   * @param val hundredths; must fit in an {@code int}
+   */
+  @Override
+  public void accept(int device, long ts, long val) {
+    if (val != (int) val) {
+      throw new IllegalArgumentException("val out of int range: " + val);
+    }
+    codes[rows] = code(device);
+    timestamps[rows] = ts;
+    vals[rows] = (int) val;
+    if (++rows == rowGroupSize) {
+      try {
+        flushGroup();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private int code(int device) {
+    long code = codeByDevice.getOrDefault(device, -1L);
+    if (code < 0) {
+      code = dictionarySize;
+      if (dictionarySize == dictionary.length) {
+        dictionary = Arrays.copyOf(dictionary, dictionarySize * 2);
+      }
+      dictionary[dictionarySize++] = device;
+      codeByDevice.put(device, code);
+    }
+    return (int) code;
+  }
+
+  private void flushGroup() throws IOException {
+    if (rows == 0) {
+      return;
+    }
+    int n = rows;
+    int maxCode = 0;
+    long minTs = Long.MAX_VALUE;
+    long maxTs = Long.MIN_VALUE;
+    int minVal = Integer.MAX_VALUE;
+    int maxVal = Integer.MIN_VALUE;
+    for (int i = 0; i < n; i++) {
+      maxCode = Math.max(maxCode, codes[i]);
+      minTs = Math.min(minTs, timestamps[i]);
+      maxTs = Math.max(maxTs, timestamps[i]);
+      minVal = Math.min(minVal, vals[i]);
+      maxVal = Math.max(maxVal, vals[i]);
+    }
+    int codeWidth = maxCode <= 0xffff ? 2 : 4;
+
+    int capacity = n * (4 + codeWidth + ColumnarBlob.MAX_VARINT_BYTES);
+    if (groupBuffer == null || groupBuffer.capacity() < capacity) {
+      groupBuffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+    ByteBuffer out = groupBuffer.clear();
+    for (int i = 0; i < n; i++) {
+      out.putInt(vals[i]);
+    }
+    if (codeWidth == 2) {
+      for (int i = 0; i < n; i++) {
+        out.putShort((short) codes[i]);
+      }
+    } else {
+      for (int i = 0; i < n; i++) {
+        out.putInt(codes[i]);
+      }
+    }
+    long prev = timestamps[0];
+    for (int i = 0; i < n; i++) {
+      long delta = timestamps[i] - prev;
+      putVarint(out, (delta << 1) ^ (delta >> 63));
+      prev = timestamps[i];
+    }
+    // Keep every group 8-byte aligned
+    while ((out.position() & 7) != 0) {
+      out.put((byte) 0);
+    }
+    out.flip();
+    long offset = position;
+    position += writeFully(out, position);
+
+    if (index.remaining() < ColumnarBlob.GROUP_ENTRY_BYTES) {
+      index = ByteBuffer.allocate(index.capacity() * 2).order(ByteOrder.nativeOrder()).put(index.flip());
+    }
+    index.putLong(offset)
+        .putInt(n)
+        .putInt(codeWidth)
+        .putLong(timestamps[0])
+        .putLong(minTs)
+        .putLong(maxTs)
+        .putInt(minVal)
+        .putInt(maxVal);
+    rowGroupCount++;
+    rowCount += n;
+    rows = 0;
+  }
+
+  private static void putVarint(ByteBuffer out, long v) {
+    while ((v & ~0x7fL) != 0) {
+      out.put((byte) ((v & 0x7f) | 0x80));
+      v >>>= 7;
+    }
+    out.put((byte) v);
+  }
+
+  private int writeFully(ByteBuffer buffer, long at) throws IOException {
+    int n = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      at += channel.write(buffer, at);
+    }
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flushGroup();
+
+      long dictionaryOffset = position;
+      ByteBuffer dict = ByteBuffer.allocate((dictionarySize * 4 + 7) & ~7).order(ByteOrder.nativeOrder());
+      dict.asIntBuffer().put(dictionary, 0, dictionarySize);
+      position += writeFully(dict, position);
+
+      long indexOffset = position;
+      position += writeFully(index.flip(), position);
+
+      ByteBuffer header = ByteBuffer.allocate(ColumnarBlob.HEADER_BYTES).order(ByteOrder.nativeOrder());
+      header.putLong(ColumnarBlob.MAGIC)
+          .putInt(ColumnarBlob.VERSION)
+          .putInt(rowGroupSize)
+          .putLong(rowCount)
+          .putInt(rowGroupCount)
+          .putInt(dictionarySize)
+          .putLong(dictionaryOffset)
+          .putLong(indexOffset)
+          .clear();
+      writeFully(header, 0);
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package fi.lauripiispanen.benchmarks.columnar;
+
+import fi.lauripiispanen.benchmarks.ndjson.DeviceRecordParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts {@code blob_N.json} files into {@link ColumnarBlob}s.
+ *
+ * Usage: {@code ColumnarConverter [blobDir [outDir]]}, by default
+ * {@code blobs} into {@code blobs/columnar}, writing {@code blob_N.col}.
+ */
+public class ColumnarConverter {
+
+  public static void main(String[] args) throws IOException {
+    File dir = new File(args.length > 0 ? args[0] : "blobs");
+    File outDir = new File(args.length > 1 ? args[1] : new File(dir, "columnar").getPath());
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+    if (files == null) {
+      throw new IOException("not a directory: " + dir);
+    }
+    outDir.mkdirs();
+    for (File f : files) {
+      Path out = outputPath(f.toPath(), outDir.toPath());
+      long rows = convert(f.toPath(), out);
+      System.out.printf("%s -> %s: %d records, %d -> %d bytes%n",
+          f.getName(), out.getFileName(), rows, f.length(), out.toFile().length());
+    }
+  }
+
+  /** {@code outDir/blob_N.col} for {@code blob_N.json}. */
+  public static Path outputPath(Path json, Path outDir) {
+    String name = json.getFileName().toString();
+    return outDir.resolve(name.substring(0, name.length() - ".json".length()) + ".col");
+  }
+
+  /**
+   * Parses every record of {@code json} into a new columnar file; malformed
+   * lines are dropped.
+   *
+   * @return number of records written
+   */
+  public static long convert(Path json, Path out) throws IOException {
+    try (Arena arena = Arena.ofConfined();
+        FileChannel channel = FileChannel.open(json, StandardOpenOption.READ);
+        ColumnarBlobWriter writer = new ColumnarBlobWriter(out)) {
+      MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+      DeviceRecordParser parser = new DeviceRecordParser(writer);
+      parser.parse(segment);
+      parser.finish();
+      return parser.records();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package fi.lauripiispanen.benchmarks.concurrent;
+
+import java.util.function.Consumer;
+
+/**
+ * Minimal non-blocking bounded queue. {@code null} elements are not allowed.
+ */
+public interface BoundedQueue<E> {
+
+  /**
+   * @return false if the queue is full
+   */
+  boolean offer(E e);
+
+  /**
+   * @return the head element, or null if the queue is empty
+   */
+  E poll();
+
+  /**
+   * Offers {@code items[from, from + count)} in order, stopping when the
+   * queue is full.
+   *
+   * @return how many items were accepted
+   */
+  default int offerBatch(E[] items, int from, int count) {
+    for (int i = 0; i < count; i++) {
+      if (!offer(items[from + i])) {
+        return i;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Polls up to {@code limit} elements and hands them to {@code consumer}.
+   *
+   * @return how many elements were drained
+   */
+  default int drain(Consumer<? super E> consumer, int limit) {
+    for (int i = 0; i < limit; i++) {
+      E e = poll();
+      if (e == null) {
+        return i;
+      }
+      consumer.accept(e);
+    }
+    return limit;
+  }
+
+  int size();
+
+  int capacity();
+}
@@ -0,0 +1,234 @@
+package fi.lauripiispanen.benchmarks.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Multi-producer single-consumer ring buffer.
+ *
+ * Producers claim slots by CAS on the tail and then publish the element
+ * with a release store into the slot; the consumer treats a non-null slot
+ * as ready. Producers check for space against a cached limit
+ * ({@code head + capacity}) and only read the consumer's head when they run
+ * into it. Tail, producer limit and head are padded apart the same way as in
+ * {@link SpscRingBuffer}.
+ *
+ * Capacity is rounded up to a power of two and slots are found by masking.
+ */
+public final class MpscRingBuffer<E> extends MpscRingBufferFields<E> implements BoundedQueue<E> {
+
+  private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+  long p30, p31, p32, p33, p34, p35, p36, p37;
+
+  public MpscRingBuffer(int capacity) {
+    super(capacity);
+  }
+
+  @Override
+  public boolean offer(E e) {
+    Objects.requireNonNull(e);
+    long t = claim(1);
+    if (t < 0) {
+      return false;
+    }
+    SLOTS.setRelease(buffer, (int) t & mask, e);
+    return true;
+  }
+
+  /**
+   * Claims all of {@code items} with a single CAS if there is room, or as
+   * many as fit otherwise.
+   */
+  @Override
+  public int offerBatch(E[] items, int from, int count) {
+    // Validate before claiming: a claimed slot that is never written would
+    // stall the consumer forever
+    Objects.checkFromIndexSize(from, count, items.length);
+    for (int i = 0; i < count; i++) {
+      Objects.requireNonNull(items[from + i]);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    while (true) {
+      long t = (long) TAIL.getVolatile(this);
+      long limit = (long) LIMIT.getAcquire(this);
+      if (t + count > limit) {
+        limit = refreshLimit();
+        if (t >= limit) {
+          return 0;
+        }
+      }
+      int n = (int) Math.min(count, limit - t);
+      if (TAIL.compareAndSet(this, t, t + n)) {
+        for (int i = 0; i < n; i++) {
+          SLOTS.setRelease(buffer, (int) (t + i) & mask, items[from + i]);
+        }
+        return n;
+      }
+    }
+  }
+
+  /**
+   * @return the claimed index, or -1 if the buffer is full
+   */
+  private long claim(int count) {
+    while (true) {
+      long t = (long) TAIL.getVolatile(this);
+      if (t + count > (long) LIMIT.getAcquire(this) && t + count > refreshLimit()) {
+        return -1;
+      }
+      if (TAIL.compareAndSet(this, t, t + count)) {
+        return t;
+      }
+    }
+  }
+
+  private long refreshLimit() {
+    long limit = (long) HEAD.getAcquire(this) + capacity;
+    LIMIT.setRelease(this, limit);
+    return limit;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    long h = head;
+    int index = (int) h & mask;
+    Object e = SLOTS.getAcquire(buffer, index);
+    if (e == null) {
+      if (h == (long) TAIL.getAcquire(this)) {
+        return null;
+      }
+      // A producer has claimed the slot but not written it yet
+      do {
+        Thread.onSpinWait();
+        e = SLOTS.getAcquire(buffer, index);
+      } while (e == null);
+    }
+    buffer[index] = null;
+    HEAD.setRelease(this, h + 1);
+    return (E) e;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public int drain(Consumer<? super E> consumer, int limit) {
+    long h = head;
+    int n = 0;
+    for (; n < limit; n++) {
+      int index = (int) (h + n) & mask;
+      Object e = SLOTS.getAcquire(buffer, index);
+      if (e == null) {
+        break;
+      }
+      buffer[index] = null;
+      consumer.accept((E) e);
+    }
+    if (n > 0) {
+      // one release store frees all drained slots for the producers
+      HEAD.setRelease(this, h + n);
+    }
+    return n;
+  }
+
+  @Override
+  public int size() {
+    long h = (long) HEAD.getAcquire(this);
+    long t = (long) TAIL.getAcquire(this);
+    return (int) Math.max(0, Math.min(capacity, t - h));
+  }
+
+  @Override
+  public int capacity() {
+    return capacity;
+  }
+}
+
+// Superclass fields are laid out first:
+// [header][config][pad][tail][pad][producerLimit][pad][head][pad]
+
+abstract class MpscRingBufferConfig<E> {
+  final Object[] buffer;
+  final int mask;
+  final int capacity;
+
+  MpscRingBufferConfig(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity must be in [1, 2^30]: " + capacity);
+    }
+    this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = this.capacity - 1;
+    this.buffer = new Object[this.capacity];
+  }
+}
+
+abstract class MpscRingBufferPad0<E> extends MpscRingBufferConfig<E> {
+  long p00, p01, p02, p03, p04, p05, p06, p07;
+
+  MpscRingBufferPad0(int capacity) {
+    super(capacity);
+  }
+}
+
+abstract class MpscRingBufferTail<E> extends MpscRingBufferPad0<E> {
+  /** CAS'd by producers. */
+  volatile long tail;
+
+  MpscRingBufferTail(int capacity) {
+    super(capacity);
+  }
+}
+
+abstract class MpscRingBufferPad1<E> extends MpscRingBufferTail<E> {
+  long p10, p11, p12, p13, p14, p15, p16, p17;
+
+  MpscRingBufferPad1(int capacity) {
+    super(capacity);
+  }
+}
+
+abstract class MpscRingBufferLimit<E> extends MpscRingBufferPad1<E> {
+  /** Producers' cached head + capacity; read often, written rarely. */
+  volatile long producerLimit;
+
+  MpscRingBufferLimit(int capacity) {
+    super(capacity);
+    producerLimit = this.capacity;
+  }
+}
+
+abstract class MpscRingBufferPad2<E> extends MpscRingBufferLimit<E> {
+  long p20, p21, p22, p23, p24, p25, p26, p27;
+
+  MpscRingBufferPad2(int capacity) {
+    super(capacity);
+  }
+}
+
+abstract class MpscRingBufferFields<E> extends MpscRingBufferPad2<E> {
+  static final VarHandle HEAD;
+  static final VarHandle TAIL;
+  static final VarHandle LIMIT;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      HEAD = lookup.findVarHandle(MpscRingBufferFields.class, "head", long.class);
+      TAIL = lookup.findVarHandle(MpscRingBufferTail.class, "tail", long.class);
+      LIMIT = lookup.findVarHandle(MpscRingBufferLimit.class, "producerLimit", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /** Written by the consumer only. */
+  volatile long head;
+
+  MpscRingBufferFields(int capacity) {
+    super(capacity);
+  }
+}
@@ -0,0 +1,18 @@
+package fi.lauripiispanen.benchmarks.concurrent;
+
+/**
+ * How to keep hot fields off each other's cache lines, following the three
+ * variants of {@code FalseSharingBenchmark}.
+ */
+public enum Padding {
+  /** No padding; neighbouring fields may share a cache line. */
+  NONE,
+  /** Unused {@code long} fields around the value, like {@code SharedStatePadded}. */
+  MANUAL,
+  /**
+   * {@code @Contended}, like {@code SharedStateContended}. Needs
+   * {@code -XX:-RestrictContended} at runtime; without it the JVM ignores
+   * the annotation and this behaves like {@link #NONE}.
+   */
+  CONTENDED
+}
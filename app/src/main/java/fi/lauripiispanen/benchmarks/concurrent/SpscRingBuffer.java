@@ -0,0 +1,179 @@
+package fi.lauripiispanen.benchmarks.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Single-producer single-consumer ring buffer.
+ *
+ * The producer's tail and the consumer's head live on separate cache lines,
+ * each next to that side's cached copy of the other index, so in the steady
+ * state a side only touches the other side's line when its cached index says
+ * the buffer is full (or empty). Padding uses the class hierarchy, the
+ * {@code SharedStatePadded} technique that does not depend on
+ * {@code -XX:-RestrictContended}.
+ *
+ * Capacity is rounded up to a power of two and slots are found by masking.
+ */
+public final class SpscRingBuffer<E> extends SpscRingBufferFields<E> implements BoundedQueue<E> {
+
+  long p20, p21, p22, p23, p24, p25, p26, p27;
+
+  public SpscRingBuffer(int capacity) {
+    super(capacity);
+  }
+
+  @Override
+  public boolean offer(E e) {
+    Objects.requireNonNull(e);
+    long t = tail;
+    if (t - cachedHead >= capacity) {
+      cachedHead = (long) HEAD.getAcquire(this);
+      if (t - cachedHead >= capacity) {
+        return false;
+      }
+    }
+    buffer[(int) t & mask] = e;
+    TAIL.setRelease(this, t + 1);
+    return true;
+  }
+
+  @Override
+  public int offerBatch(E[] items, int from, int count) {
+    // A negative count would move the tail backwards over queued elements
+    Objects.checkFromIndexSize(from, count, items.length);
+    long t = tail;
+    long free = capacity - (t - cachedHead);
+    if (free < count) {
+      cachedHead = (long) HEAD.getAcquire(this);
+      free = capacity - (t - cachedHead);
+    }
+    int n = (int) Math.min(free, count);
+    for (int i = 0; i < n; i++) {
+      buffer[(int) (t + i) & mask] = Objects.requireNonNull(items[from + i]);
+    }
+    // one release store publishes the whole batch
+    TAIL.setRelease(this, t + n);
+    return n;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    long h = head;
+    if (h >= cachedTail) {
+      cachedTail = (long) TAIL.getAcquire(this);
+      if (h >= cachedTail) {
+        return null;
+      }
+    }
+    int index = (int) h & mask;
+    E e = (E) buffer[index];
+    buffer[index] = null;
+    HEAD.setRelease(this, h + 1);
+    return e;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public int drain(Consumer<? super E> consumer, int limit) {
+    long h = head;
+    long available = cachedTail - h;
+    if (available < limit) {
+      cachedTail = (long) TAIL.getAcquire(this);
+      available = cachedTail - h;
+    }
+    int n = (int) Math.min(available, limit);
+    for (int i = 0; i < n; i++) {
+      int index = (int) (h + i) & mask;
+      E e = (E) buffer[index];
+      buffer[index] = null;
+      consumer.accept(e);
+    }
+    HEAD.setRelease(this, h + n);
+    return n;
+  }
+
+  @Override
+  public int size() {
+    long h = (long) HEAD.getAcquire(this);
+    long t = (long) TAIL.getAcquire(this);
+    return (int) Math.max(0, Math.min(capacity, t - h));
+  }
+
+  @Override
+  public int capacity() {
+    return capacity;
+  }
+}
+
+// Superclass fields are laid out first, which keeps the groups below apart:
+// [header][config][pad][tail, cachedHead][pad][head, cachedTail][pad]
+
+abstract class SpscRingBufferConfig<E> {
+  final Object[] buffer;
+  final int mask;
+  final int capacity;
+
+  SpscRingBufferConfig(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity must be in [1, 2^30]: " + capacity);
+    }
+    this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = this.capacity - 1;
+    this.buffer = new Object[this.capacity];
+  }
+}
+
+abstract class SpscRingBufferPad0<E> extends SpscRingBufferConfig<E> {
+  long p00, p01, p02, p03, p04, p05, p06, p07;
+
+  SpscRingBufferPad0(int capacity) {
+    super(capacity);
+  }
+}
+
+abstract class SpscRingBufferProducer<E> extends SpscRingBufferPad0<E> {
+  /** Written by the producer only. */
+  volatile long tail;
+  /** Producer's last seen head. */
+  long cachedHead;
+
+  SpscRingBufferProducer(int capacity) {
+    super(capacity);
+  }
+}
+
+abstract class SpscRingBufferPad1<E> extends SpscRingBufferProducer<E> {
+  long p10, p11, p12, p13, p14, p15, p16, p17;
+
+  SpscRingBufferPad1(int capacity) {
+    super(capacity);
+  }
+}
+
+abstract class SpscRingBufferFields<E> extends SpscRingBufferPad1<E> {
+  static final VarHandle HEAD;
+  static final VarHandle TAIL;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      HEAD = lookup.findVarHandle(SpscRingBufferFields.class, "head", long.class);
+      TAIL = lookup.findVarHandle(SpscRingBufferProducer.class, "tail", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /** Written by the consumer only. */
+  volatile long head;
+  /** Consumer's last seen tail. */
+  long cachedTail;
+
+  SpscRingBufferFields(int capacity) {
+    super(capacity);
+  }
+}
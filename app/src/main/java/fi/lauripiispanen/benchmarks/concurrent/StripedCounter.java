@@ -0,0 +1,268 @@
+package fi.lauripiispanen.benchmarks.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import jdk.internal.vm.annotation.Contended;
+
+/**
+ * Counter for metrics that many threads update and few read, like
+ * {@code java.util.concurrent.atomic.LongAdder}.
+ *
+ * Updates first go to a single base value. The first failed CAS on it
+ * switches the counter to an array of cells, each on its own cache line
+ * according to the chosen {@link Padding}. Threads are spread over the
+ * cells by a per-thread probe that is rehashed whenever a cell CAS fails,
+ * and the array doubles on contention up to {@code maxStripes}.
+ *
+ * {@link #sum()} is a plain read of the base and every cell. It is not an
+ * atomic snapshot while updates are in flight.
+ */
+public class StripedCounter {
+
+  private static final VarHandle BASE;
+  private static final VarHandle BUSY;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      BASE = lookup.findVarHandle(StripedCounter.class, "base", long.class);
+      BUSY = lookup.findVarHandle(StripedCounter.class, "busy", int.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  // Per-thread probe, rehashed on contention so that colliding threads move apart
+  private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(
+      () -> new int[] { (int) Thread.currentThread().threadId() * 0x9e3779b9 | 1 });
+
+  private final Padding padding;
+  private final int maxStripes;
+
+  private volatile long base;
+  private volatile Cell[] cells;
+  private volatile int busy;
+
+  public StripedCounter() {
+    this(Padding.CONTENDED, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param maxStripes upper bound for the number of cells, rounded up to a power of two
+   */
+  public StripedCounter(Padding padding, int maxStripes) {
+    if (maxStripes < 1) {
+      throw new IllegalArgumentException("maxStripes must be positive: " + maxStripes);
+    }
+    this.padding = padding;
+    this.maxStripes = maxStripes == 1 ? 1 : Integer.highestOneBit(maxStripes - 1) << 1;
+  }
+
+  public void increment() {
+    add(1L);
+  }
+
+  public void add(long x) {
+    Cell[] cs = cells;
+    if (cs == null) {
+      long b = base;
+      if (BASE.compareAndSet(this, b, b + x)) {
+        return;
+      }
+    }
+    addContended(x);
+  }
+
+  private void addContended(long x) {
+    int[] probe = PROBE.get();
+    while (true) {
+      Cell[] cs = cells;
+      if (cs == null) {
+        if (tryLock()) {
+          try {
+            if (cells == null) {
+              Cell[] created = new Cell[Math.min(2, maxStripes)];
+              for (int i = 0; i < created.length; i++) {
+                created[i] = newCell();
+              }
+              cells = created;
+            }
+          } finally {
+            unlock();
+          }
+        } else {
+          long b = base;
+          if (BASE.compareAndSet(this, b, b + x)) {
+            return;
+          }
+        }
+        continue;
+      }
+
+      Cell cell = cs[probe[0] & (cs.length - 1)];
+      long v = cell.get();
+      if (cell.cas(v, v + x)) {
+        return;
+      }
+
+      // Contended cell: grow if allowed, then move this thread elsewhere
+      if (cs.length < maxStripes && cells == cs && tryLock()) {
+        try {
+          if (cells == cs) {
+            Cell[] grown = new Cell[cs.length << 1];
+            System.arraycopy(cs, 0, grown, 0, cs.length);
+            for (int i = cs.length; i < grown.length; i++) {
+              grown[i] = newCell();
+            }
+            cells = grown;
+          }
+        } finally {
+          unlock();
+        }
+      }
+      int p = probe[0];
+      p ^= p << 13;
+      p ^= p >>> 17;
+      p ^= p << 5;
+      probe[0] = p;
+    }
+  }
+
+  private boolean tryLock() {
+    return busy == 0 && BUSY.compareAndSet(this, 0, 1);
+  }
+
+  private void unlock() {
+    busy = 0;
+  }
+
+  private Cell newCell() {
+    return switch (padding) {
+      case NONE -> new PlainCell();
+      case MANUAL -> new PaddedCell();
+      case CONTENDED -> new ContendedCell();
+    };
+  }
+
+  public long sum() {
+    long sum = base;
+    Cell[] cs = cells;
+    if (cs != null) {
+      for (Cell cell : cs) {
+        sum += cell.get();
+      }
+    }
+    return sum;
+  }
+
+  /** Only meaningful when no updates are running concurrently. */
+  public void reset() {
+    base = 0L;
+    Cell[] cs = cells;
+    if (cs != null) {
+      for (Cell cell : cs) {
+        cell.set(0L);
+      }
+    }
+  }
+
+  /** Current number of cells, 0 while uncontended. */
+  public int stripes() {
+    Cell[] cs = cells;
+    return cs == null ? 0 : cs.length;
+  }
+
+  public Padding padding() {
+    return padding;
+  }
+
+  interface Cell {
+    long get();
+
+    void set(long value);
+
+    boolean cas(long expected, long value);
+  }
+
+  static final class PlainCell implements Cell {
+    private static final VarHandle VALUE = valueHandle(PlainCell.class);
+
+    volatile long value;
+
+    @Override
+    public long get() {
+      return value;
+    }
+
+    @Override
+    public void set(long value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean cas(long expected, long value) {
+      return VALUE.compareAndSet(this, expected, value);
+    }
+  }
+
+  // Fields of a superclass are laid out before those of a subclass, so the
+  // value ends up with 64 bytes of padding on both sides
+  static class PadBefore {
+    long p01, p02, p03, p04, p05, p06, p07, p08;
+  }
+
+  static class PaddedValue extends PadBefore {
+    volatile long value;
+  }
+
+  static final class PaddedCell extends PaddedValue implements Cell {
+    private static final VarHandle VALUE = valueHandle(PaddedValue.class);
+
+    long p11, p12, p13, p14, p15, p16, p17, p18;
+
+    @Override
+    public long get() {
+      return value;
+    }
+
+    @Override
+    public void set(long value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean cas(long expected, long value) {
+      return VALUE.compareAndSet((PaddedValue) this, expected, value);
+    }
+  }
+
+  static final class ContendedCell implements Cell {
+    private static final VarHandle VALUE = valueHandle(ContendedCell.class);
+
+    @Contended
+    volatile long value;
+
+    @Override
+    public long get() {
+      return value;
+    }
+
+    @Override
+    public void set(long value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean cas(long expected, long value) {
+      return VALUE.compareAndSet(this, expected, value);
+    }
+  }
+
+  private static VarHandle valueHandle(Class<?> type) {
+    try {
+      return MethodHandles.lookup().findVarHandle(type, "value", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+}
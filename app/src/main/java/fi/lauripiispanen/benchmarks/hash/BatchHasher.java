@@ -0,0 +1,23 @@
+package fi.lauripiispanen.benchmarks.hash;
+
+/**
+ * Hashes a batch of keys to 32 bits at once, which lets implementations
+ * work on several keys per loop iteration.
+ */
+@FunctionalInterface
+public interface BatchHasher {
+
+  /** Plain per-key {@link Fnv1a#hash32(byte[])}, the baseline. */
+  BatchHasher FNV1A = Fnv1a::hashAll;
+
+  /**
+   * @param out receives one hash per key, must be at least as long as {@code keys}
+   */
+  void hashAll(byte[][] keys, int[] out);
+
+  static void checkLengths(byte[][] keys, int[] out) {
+    if (out.length < keys.length) {
+      throw new IllegalArgumentException("out shorter than keys: " + out.length + " < " + keys.length);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package fi.lauripiispanen.benchmarks.hash;
+
+/**
+ * 64-bit FNV-1a, the same hash the division experiment uses for its keys.
+ */
+public final class Fnv1a {
+
+  public static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  public static final long PRIME = 0x100000001b3L;
+
+  private Fnv1a() {
+  }
+
+  public static long hash64(byte[] key) {
+    return hash64(key, 0L);
+  }
+
+  /** Seeded variant; the seed is folded into the offset basis. */
+  public static long hash64(byte[] key, long seed) {
+    long hash = OFFSET_BASIS ^ seed;
+    for (byte b : key) {
+      hash ^= (b & 0xff);
+      hash *= PRIME;
+    }
+    return hash;
+  }
+
+  /** Folds the 64-bit hash into 32 bits, same as {@code fnv1a64to32}. */
+  public static int hash32(byte[] key) {
+    return fold(hash64(key));
+  }
+
+  /** Same as calling {@link #hash32(byte[])} for every key. */
+  public static void hashAll(byte[][] keys, int[] out) {
+    BatchHasher.checkLengths(keys, out);
+    for (int i = 0; i < keys.length; i++) {
+      out[i] = hash32(keys[i]);
+    }
+  }
+
+  static int fold(long hash) {
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
@@ -0,0 +1,63 @@
+package fi.lauripiispanen.benchmarks.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * FNV-1a with one key per {@code LongVector} lane. Key bytes are loaded
+ * eight at a time per lane through a little-endian {@code long} view and
+ * then fed into the lanes byte by byte, so the xor-multiply chain runs for
+ * all lanes in parallel.
+ *
+ * Produces exactly the same hashes as {@link Fnv1a#hash32(byte[])}. Note
+ * that 64-bit lane multiplies need AVX-512DQ (or NEON/SVE) to be native;
+ * elsewhere they are emulated and this may well lose to
+ * {@link InterleavedFnv1aHasher}.
+ */
+public final class VectorFnv1aHasher implements BatchHasher {
+
+  private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+  private static final VarHandle LONG_VIEW =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  @Override
+  public void hashAll(byte[][] keys, int[] out) {
+    BatchHasher.checkLengths(keys, out);
+    int lanes = SPECIES.length();
+    long[] words = new long[lanes];
+    long[] hashes = new long[lanes];
+    int n = keys.length;
+    int i = 0;
+    for (; i + lanes <= n; i += lanes) {
+      int common = Integer.MAX_VALUE;
+      for (int l = 0; l < lanes; l++) {
+        common = Math.min(common, keys[i + l].length);
+      }
+
+      LongVector hash = LongVector.broadcast(SPECIES, Fnv1a.OFFSET_BASIS);
+      int j = 0;
+      for (; j + 8 <= common; j += 8) {
+        for (int l = 0; l < lanes; l++) {
+          words[l] = (long) LONG_VIEW.get(keys[i + l], j);
+        }
+        LongVector word = LongVector.fromArray(SPECIES, words, 0);
+        for (int b = 0; b < 64; b += 8) {
+          LongVector octet = word.lanewise(VectorOperators.LSHR, b).and(0xffL);
+          hash = hash.lanewise(VectorOperators.XOR, octet).mul(Fnv1a.PRIME);
+        }
+      }
+      hash.intoArray(hashes, 0);
+
+      for (int l = 0; l < lanes; l++) {
+        out[i + l] = Fnv1a.fold(InterleavedFnv1aHasher.finish(hashes[l], keys[i + l], j));
+      }
+    }
+    for (; i < n; i++) {
+      out[i] = Fnv1a.hash32(keys[i]);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package fi.lauripiispanen.benchmarks.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Word-at-a-time hash: consumes 8 bytes per step through a little-endian
+ * {@code long} view of the key, with an xxHash-style multiply-rotate round
+ * and a MurmurHash3 finalizer. For a 20-byte key that is 3 rounds instead
+ * of FNV-1a's 20 dependent multiplies.
+ *
+ * Not compatible with {@link Fnv1a}: the same key hashes differently.
+ */
+public final class WordHasher implements BatchHasher {
+
+  private static final VarHandle LONG_VIEW =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private static final long P1 = 0x9e3779b185ebca87L;
+  private static final long P2 = 0xc2b2ae3d27d4eb4fL;
+
+  public static long hash64(byte[] key) {
+    int length = key.length;
+    long hash = length * P1;
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      long word = (long) LONG_VIEW.get(key, i);
+      hash = Long.rotateLeft(hash ^ (word * P2), 31) * P1;
+    }
+    if (i < length) {
+      long tail = 0;
+      for (int shift = 0; i < length; i++, shift += 8) {
+        tail |= (key[i] & 0xffL) << shift;
+      }
+      hash = Long.rotateLeft(hash ^ (tail * P2), 31) * P1;
+    }
+    return fmix64(hash);
+  }
+
+  public static int hash32(byte[] key) {
+    return Fnv1a.fold(hash64(key));
+  }
+
+  @Override
+  public void hashAll(byte[][] keys, int[] out) {
+    BatchHasher.checkLengths(keys, out);
+    for (int i = 0; i < keys.length; i++) {
+      out[i] = hash32(keys[i]);
+    }
+  }
+
+  static long fmix64(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,30 @@
+package fi.lauripiispanen.benchmarks.index;
+
+/**
+ * Lemire's multiply-shift "fastrange": {@code (hash * size) >>> 32} on the
+ * unsigned hash. One multiplication, no division, any size.
+ *
+ * This is not a modulo. It uses the high bits of the hash rather than the
+ * low ones, so the hash needs good high bits (FNV-1a folded to 32 bits has).
+ */
+public final class FastRangeReducer implements IndexReducer {
+
+  private final long size;
+
+  public FastRangeReducer(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be positive: " + size);
+    }
+    this.size = size;
+  }
+
+  @Override
+  public int reduce(int hash) {
+    return (int) (((hash & 0xffffffffL) * size) >>> 32);
+  }
+
+  @Override
+  public int size() {
+    return (int) size;
+  }
+}
@@ -0,0 +1,24 @@
+package fi.lauripiispanen.benchmarks.index;
+
+/** {@code Math.floorMod}, the baseline. Costs an integer division. */
+public final class FloorModReducer implements IndexReducer {
+
+  private final int size;
+
+  public FloorModReducer(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be positive: " + size);
+    }
+    this.size = size;
+  }
+
+  @Override
+  public int reduce(int hash) {
+    return Math.floorMod(hash, size);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
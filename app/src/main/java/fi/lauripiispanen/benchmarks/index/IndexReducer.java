@@ -0,0 +1,20 @@
+package fi.lauripiispanen.benchmarks.index;
+
+/**
+ * Maps a 32-bit hash onto {@code [0, size)}.
+ *
+ * {@code CpuDivisionBenchmark} shows that {@code Math.floorMod} is the slow
+ * way to do this. A mask is the fastest but only works for powers of two;
+ * the other implementations handle any size without rounding it up.
+ */
+public interface IndexReducer {
+
+  int reduce(int hash);
+
+  int size();
+
+  /** Mask for powers of two, fastrange otherwise. */
+  static IndexReducer forSize(int size) {
+    return Integer.bitCount(size) == 1 ? new MaskReducer(size) : new FastRangeReducer(size);
+  }
+}
@@ -0,0 +1,24 @@
+package fi.lauripiispanen.benchmarks.index;
+
+/** {@code hash & (size - 1)}. Only valid for power-of-two sizes. */
+public final class MaskReducer implements IndexReducer {
+
+  private final int mask;
+
+  public MaskReducer(int size) {
+    if (size < 1 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("size must be a power of two: " + size);
+    }
+    this.mask = size - 1;
+  }
+
+  @Override
+  public int reduce(int hash) {
+    return hash & mask;
+  }
+
+  @Override
+  public int size() {
+    return mask + 1;
+  }
+}
@@ -0,0 +1,36 @@
+package fi.lauripiispanen.benchmarks.index;
+
+/**
+ * Exact modulo with a precomputed reciprocal (Lemire, Kaser and Kurz,
+ * "Faster Remainder by Direct Computation"). Equal to
+ * {@code Integer.remainderUnsigned(hash, size)} but computed with two
+ * multiplications instead of a division.
+ *
+ * Note that this treats the hash as unsigned, so for negative hashes the
+ * result differs from {@code Math.floorMod}; the distribution is the same.
+ */
+public final class ReciprocalModReducer implements IndexReducer {
+
+  private final long size;
+  private final long reciprocal;
+
+  public ReciprocalModReducer(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be positive: " + size);
+    }
+    this.size = size;
+    // ceil(2^64 / size), wrapping to 0 for size == 1 which still yields 0
+    this.reciprocal = Long.divideUnsigned(-1L, size) + 1;
+  }
+
+  @Override
+  public int reduce(int hash) {
+    long lowBits = reciprocal * (hash & 0xffffffffL);
+    return (int) Math.unsignedMultiplyHigh(lowBits, size);
+  }
+
+  @Override
+  public int size() {
+    return (int) size;
+  }
+}
@@ -1,56 +1,197 @@
 package fi.lauripiispanen.benchmarks.io;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.Random;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Writes {@code blob_<i>.json} files of newline-delimited records
+ * <pre>
+ *   {"device":"dev_1234","ts":1700000000000,"val":12.34}
+ * </pre>
+ * Records are encoded straight into a reusable block buffer, without
+ * {@code String.format} or charset encoding, and written with a
+ * {@code FileChannel} one block at a time. Files are generated in parallel;
+ * each has its own RNG seeded from {@code --seed} and its index, so the
+ * output is identical for any thread count. The last record of a file is
+ * clipped to hit the target size exactly.
+ *
+ * Options ({@code k}, {@code m}, {@code g} size suffixes are accepted):
+ * <pre>
+ *   --count=16 --min-size=4g --max-size=16g --out=blobs --seed=42 --threads=&lt;cores&gt;
+ * </pre>
+ */
 public class BlobGenerator {
 
+  private static final int BLOCK_SIZE = 4 << 20;
+  private static final int MAX_RECORD_LENGTH = 128;
+  private static final long BASE_TS = 1_700_000_000_000L;
+
+  private static final byte[] DEVICE_PREFIX = "{\"device\":\"dev_".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] TS_KEY = "\",\"ts\":".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] VAL_KEY = ",\"val\":".getBytes(StandardCharsets.US_ASCII);
+
+  private final int count;
+  private final long minSize;
+  private final long maxSize;
+  private final File dir;
+  private final long seed;
+
+  public BlobGenerator(int count, long minSize, long maxSize, File dir, long seed) {
+    if (count < 0) {
+      throw new IllegalArgumentException("count must be non-negative: " + count);
+    }
+    if (minSize < 0 || maxSize < minSize) {
+      throw new IllegalArgumentException("sizes must satisfy 0 <= min <= max: " + minSize + ", " + maxSize);
+    }
+    this.count = count;
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.dir = dir;
+    this.seed = seed;
+  }
+
   public static void main(String[] args) throws Exception {
-    File dir = new File("blobs");
+    int count = 16;
+    long minSize = parseSize("4g");
+    long maxSize = parseSize("16g");
+    String out = "blobs";
+    long seed = 42;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    for (String arg : args) {
+      int eq = arg.indexOf('=');
+      if (!arg.startsWith("--") || eq < 0) {
+        throw new IllegalArgumentException("expected --name=value: " + arg);
+      }
+      String value = arg.substring(eq + 1);
+      switch (arg.substring(2, eq)) {
+        case "count" -> count = Integer.parseInt(value);
+        case "min-size" -> minSize = parseSize(value);
+        case "max-size" -> maxSize = parseSize(value);
+        case "out" -> out = value;
+        case "seed" -> seed = Long.parseLong(value);
+        case "threads" -> threads = Integer.parseInt(value);
+        default -> throw new IllegalArgumentException("unknown option: " + arg);
+      }
+    }
+
+    File dir = new File(out);
     if (!dir.exists())
       dir.mkdirs();
 
-    int count = 1_000_000;
-    int minSize = 4096 * 1024 * 1024;
-    int maxSize = 16384 * 1024 * 1024;
-    Random random = new Random(42);
-
-    for (int i = 0; i < count; i++) {
-      File f = new File(dir, "blob_" + i + ".json");
-      System.out.println("Generating " + f.getAbsolutePath());
-      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(f))) {
-        int targetSize = minSize + random.nextInt(maxSize - minSize + 1);
-        int written = 0;
-
-        while (written < targetSize) {
-          String deviceId = "dev_" + (random.nextInt(10_000));
-          long ts = System.currentTimeMillis();
-          double val = random.nextDouble() * 100;
-
-          String json = String.format("{\"device\":\"%s\",\"ts\":%d,\"val\":%.2f}\n",
-              deviceId, ts, val);
-          byte[] content = json.getBytes(StandardCharsets.UTF_8);
-
-          if (written + content.length > targetSize) {
-            int remaining = targetSize - written;
-            out.write(content, 0, remaining); // clip to fit
-            written += remaining;
-          } else {
-            out.write(content);
-            written += content.length;
-          }
-        }
+    long start = System.nanoTime();
+    new BlobGenerator(count, minSize, maxSize, dir, seed).generate(threads);
+    System.out.printf("%nGenerated %d files in %s in %.1f s%n",
+        count, dir.getAbsolutePath(), (System.nanoTime() - start) / 1e9);
+  }
+
+  static long parseSize(String s) {
+    String lower = s.trim().toLowerCase();
+    long unit = switch (lower.isEmpty() ? ' ' : lower.charAt(lower.length() - 1)) {
+      case 'k' -> 1L << 10;
+      case 'm' -> 1L << 20;
+      case 'g' -> 1L << 30;
+      default -> 1;
+    };
+    String digits = unit == 1 ? lower : lower.substring(0, lower.length() - 1);
+    return Math.multiplyExact(Long.parseLong(digits), unit);
+  }
+
+  public void generate(int threads) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    AtomicInteger done = new AtomicInteger();
+    try {
+      List<Future<?>> futures = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        int index = i;
+        futures.add(executor.submit(() -> {
+          writeBlob(index);
+          System.out.printf("Generated %d/%d files\r", done.incrementAndGet(), count);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
       }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 
-      if (i % 1000 == 0) {
-        System.out.printf("Generated %d/%d files\r", i, count);
+  void writeBlob(int index) throws IOException {
+    SplittableRandom random = new SplittableRandom(seed ^ (index * 0x9e3779b97f4a7c15L));
+    long targetSize = minSize + random.nextLong(maxSize - minSize + 1);
+    Path path = new File(dir, "blob_" + index + ".json").toPath();
+
+    byte[] block = new byte[BLOCK_SIZE];
+    ByteBuffer buffer = ByteBuffer.wrap(block);
+    long ts = BASE_TS;
+    long written = 0;
+    int pos = 0;
+
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      while (written + pos < targetSize) {
+        if (pos + MAX_RECORD_LENGTH > BLOCK_SIZE) {
+          written += writeFully(channel, buffer.clear().limit(pos));
+          pos = 0;
+        }
+        ts += random.nextInt(1000);
+        int end = writeRecord(block, pos, random.nextInt(10_000), ts, random.nextInt(10_000));
+        pos = (int) Math.min(end, targetSize - written);
       }
+      writeFully(channel, buffer.clear().limit(pos));
     }
+  }
 
-    System.out.println("\nGenerated " + count + " files in " + dir.getAbsolutePath());
+  private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    int n = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    return n;
+  }
+
+  /** @return the position after the record */
+  static int writeRecord(byte[] buf, int pos, int device, long ts, int valHundredths) {
+    System.arraycopy(DEVICE_PREFIX, 0, buf, pos, DEVICE_PREFIX.length);
+    pos = writeLong(buf, pos + DEVICE_PREFIX.length, device);
+    System.arraycopy(TS_KEY, 0, buf, pos, TS_KEY.length);
+    pos = writeLong(buf, pos + TS_KEY.length, ts);
+    System.arraycopy(VAL_KEY, 0, buf, pos, VAL_KEY.length);
+    pos = writeLong(buf, pos + VAL_KEY.length, valHundredths / 100);
+    int cents = valHundredths % 100;
+    buf[pos++] = '.';
+    buf[pos++] = (byte) ('0' + cents / 10);
+    buf[pos++] = (byte) ('0' + cents % 10);
+    buf[pos++] = '}';
+    buf[pos++] = '\n';
+    return pos;
+  }
+
+  /** Writes a non-negative {@code value} in decimal. */
+  static int writeLong(byte[] buf, int pos, long value) {
+    int digits = 1;
+    for (long v = value; v >= 10; v /= 10) {
+      digits++;
+    }
+    int end = pos + digits;
+    for (int i = end - 1; i >= pos; i--) {
+      buf[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    return end;
   }
 }
@@ -0,0 +1,239 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A file cut into fixed-size blocks that are deflated independently, so
+ * any range can be read back by inflating only the blocks it overlaps.
+ *
+ * File layout (native byte order):
+ * <pre>
+ *   0                raw deflate streams, one per block
+ *   indexOffset      long[blockCount + 1] start of each block, then end of data
+ *   end - 32         footer: magic long, uncompressedSize long,
+ *                    indexOffset long, blockSize int, blockCount int
+ * </pre>
+ * The file is mapped once and shared; each thread reads through its own
+ * {@link Reader}, which owns the {@code Inflater} and the block buffer.
+ */
+public final class BlockCompressedFile implements AutoCloseable {
+
+  public static final long MAGIC = 0x315a4c4b434f4c42L; // "BLOCKLZ1"
+  static final int FOOTER_BYTES = 32;
+
+  private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+  private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED;
+
+  private final Arena arena;
+  private final MemorySegment file;
+  private final MemorySegment index;
+  private final long uncompressedSize;
+  private final int blockSize;
+  private final int blockCount;
+
+  private BlockCompressedFile(Arena arena, MemorySegment file) {
+    this.arena = arena;
+    this.file = file;
+    long footer = file.byteSize() - FOOTER_BYTES;
+    if (footer < 0 || file.get(LONG, footer) != MAGIC) {
+      throw new IllegalArgumentException("not a block-compressed file (bad magic or byte order)");
+    }
+    this.uncompressedSize = file.get(LONG, footer + 8);
+    long indexOffset = file.get(LONG, footer + 16);
+    this.blockSize = file.get(INT, footer + 24);
+    this.blockCount = file.get(INT, footer + 28);
+    this.index = file.asSlice(indexOffset, (blockCount + 1L) * 8);
+  }
+
+  public static BlockCompressedFile open(Path path) throws IOException {
+    Arena arena = Arena.ofShared();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new BlockCompressedFile(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Compresses {@code in} into {@code out} in blocks of {@code blockSize}
+   * bytes at the given {@code Deflater} level.
+   *
+   * @return size of the compressed file
+   */
+  public static long compress(Path in, Path out, int blockSize, int level) throws IOException {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+    }
+    try (FileChannel src = FileChannel.open(in, StandardOpenOption.READ);
+        FileChannel dst = FileChannel.open(out,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      long size = src.size();
+      long blocks = (size + blockSize - 1) / blockSize;
+      if (blocks > (Integer.MAX_VALUE - FOOTER_BYTES) / 8 - 1) {
+        throw new IllegalArgumentException("too many blocks: " + blocks);
+      }
+      int blockCount = (int) blocks;
+      ByteBuffer index = ByteBuffer.allocate((blockCount + 1) * 8 + FOOTER_BYTES).order(ByteOrder.nativeOrder());
+      ByteBuffer raw = ByteBuffer.allocate(blockSize);
+      ByteBuffer compressed = ByteBuffer.allocate(maxCompressedBlock(blockSize));
+      Deflater deflater = new Deflater(level, true);
+      try {
+        long position = 0;
+        for (int b = 0; b < blockCount; b++) {
+          raw.clear();
+          while (raw.hasRemaining() && src.read(raw) > 0) {
+            // fill the block
+          }
+          raw.flip();
+          deflater.reset();
+          deflater.setInput(raw);
+          deflater.finish();
+          compressed.clear();
+          while (!deflater.finished()) {
+            if (!compressed.hasRemaining()) {
+              throw new IllegalStateException("block expanded beyond buffer");
+            }
+            deflater.deflate(compressed);
+          }
+          compressed.flip();
+          index.putLong(position);
+          position += compressed.remaining();
+          while (compressed.hasRemaining()) {
+            dst.write(compressed);
+          }
+        }
+        index.putLong(position);
+        index.putLong(MAGIC).putLong(size).putLong(position).putInt(blockSize).putInt(blockCount).flip();
+        while (index.hasRemaining()) {
+          dst.write(index);
+        }
+        return dst.size();
+      } finally {
+        deflater.end();
+      }
+    }
+  }
+
+  /** Deflate can expand incompressible input slightly. */
+  static int maxCompressedBlock(int blockSize) {
+    return blockSize + blockSize / 8 + 64;
+  }
+
+  public long uncompressedSize() {
+    return uncompressedSize;
+  }
+
+  public long compressedSize() {
+    return file.byteSize();
+  }
+
+  public int blockSize() {
+    return blockSize;
+  }
+
+  public Reader reader() {
+    return new Reader();
+  }
+
+  @Override
+  public void close() {
+    arena.close();
+  }
+
+  /**
+   * Random-access reads for one thread. The last inflated block is kept, so
+   * consecutive reads from the same block inflate it only once.
+   */
+  public final class Reader implements AutoCloseable {
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] block = new byte[blockSize];
+    // Inflater cannot read buffers of a shared arena, so input goes through here
+    private final byte[] input = new byte[maxCompressedBlock(blockSize)];
+    private int cachedBlock = -1;
+    private long blocksInflated;
+    private long compressedBytesRead;
+
+    private Reader() {
+    }
+
+    /**
+     * Reads up to {@code len} bytes at logical {@code offset}.
+     *
+     * @return bytes read, less than {@code len} only at the end of the file
+     */
+    public int read(long offset, byte[] dst, int dstOffset, int len) {
+      if (offset < 0 || offset > uncompressedSize) {
+        throw new IndexOutOfBoundsException("offset out of file: " + offset);
+      }
+      int n = (int) Math.min(len, uncompressedSize - offset);
+      int done = 0;
+      while (done < n) {
+        long pos = offset + done;
+        int b = (int) (pos / blockSize);
+        int blockLength = inflate(b);
+        int inBlock = (int) (pos - (long) b * blockSize);
+        int copy = Math.min(n - done, blockLength - inBlock);
+        System.arraycopy(block, inBlock, dst, dstOffset + done, copy);
+        done += copy;
+      }
+      return n;
+    }
+
+    private int inflate(int b) {
+      int expected = (int) Math.min(blockSize, uncompressedSize - (long) b * blockSize);
+      if (b == cachedBlock) {
+        return expected;
+      }
+      long start = index.get(LONG, (long) b * 8);
+      long end = index.get(LONG, (long) (b + 1) * 8);
+      inflater.reset();
+      int length = (int) (end - start);
+      MemorySegment.copy(file, ValueLayout.JAVA_BYTE, start, input, 0, length);
+      inflater.setInput(input, 0, length);
+      try {
+        int n = 0;
+        while (n < expected) {
+          int r = inflater.inflate(block, n, expected - n);
+          if (r == 0 && (inflater.finished() || inflater.needsInput())) {
+            break;
+          }
+          n += r;
+        }
+        if (n != expected) {
+          throw new IllegalStateException("block " + b + " inflated to " + n + " bytes, expected " + expected);
+        }
+      } catch (DataFormatException e) {
+        throw new IllegalStateException("corrupt block " + b, e);
+      }
+      cachedBlock = b;
+      blocksInflated++;
+      compressedBytesRead += end - start;
+      return expected;
+    }
+
+    public long blocksInflated() {
+      return blocksInflated;
+    }
+
+    public long compressedBytesRead() {
+      return compressedBytesRead;
+    }
+
+    @Override
+    public void close() {
+      inflater.end();
+    }
+  }
+}
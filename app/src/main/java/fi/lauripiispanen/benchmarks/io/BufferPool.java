@@ -0,0 +1,228 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aligned off-heap buffers in power-of-two size classes, recycled through
+ * per-thread free lists so that acquiring and releasing a buffer allocates
+ * nothing once a thread has warmed up.
+ *
+ * Each thread carves its buffers out of its own slabs of
+ * {@code slabBytes}; all slabs live in one shared {@link Arena} that is
+ * freed by {@link #close()}. A buffer must be released by the thread that
+ * acquired it, exactly once; both are checked, and buffers still held at
+ * close are reported. Every thread that acquires gets slabs of its own, so
+ * the pool suits a fixed set of long-lived threads.
+ */
+public final class BufferPool implements AutoCloseable {
+
+  public static final int PAGE_SIZE = 4096;
+  public static final int DEFAULT_SLAB_BYTES = 1 << 20;
+
+  private static final VarHandle OUTSTANDING;
+
+  static {
+    try {
+      OUTSTANDING = MethodHandles.lookup().findVarHandle(Cache.class, "outstanding", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final int alignment;
+  private final int alignmentShift;
+  private final int maxBufferSize;
+  private final int slabBytes;
+  private final int classCount;
+  private final Arena arena = Arena.ofShared();
+  private final AtomicLong allocatedBytes = new AtomicLong();
+  private final ThreadLocal<Cache> caches = ThreadLocal.withInitial(this::newCache);
+  private final List<Cache> allCaches = new ArrayList<>();
+  private boolean closed;
+
+  public BufferPool(int maxBufferSize) {
+    this(maxBufferSize, PAGE_SIZE, DEFAULT_SLAB_BYTES);
+  }
+
+  public BufferPool(int maxBufferSize, int alignment, int slabBytes) {
+    if (Integer.bitCount(alignment) != 1) {
+      throw new IllegalArgumentException("alignment must be a power of two: " + alignment);
+    }
+    if (maxBufferSize < 1 || maxBufferSize > 1 << 30) {
+      throw new IllegalArgumentException("maxBufferSize must be in [1, 2^30]: " + maxBufferSize);
+    }
+    if (slabBytes < 1) {
+      throw new IllegalArgumentException("slabBytes must be positive: " + slabBytes);
+    }
+    this.alignment = alignment;
+    this.alignmentShift = Integer.numberOfTrailingZeros(alignment);
+    this.maxBufferSize = maxBufferSize;
+    this.slabBytes = slabBytes;
+    this.classCount = sizeClass(maxBufferSize) + 1;
+  }
+
+  /** Index of the smallest class holding {@code size} bytes. */
+  private int sizeClass(int size) {
+    int bits = 32 - Integer.numberOfLeadingZeros(Math.max(size, alignment) - 1);
+    return bits - alignmentShift;
+  }
+
+  private int classSize(int sizeClass) {
+    return alignment << sizeClass;
+  }
+
+  private Cache newCache() {
+    Cache cache = new Cache(Thread.currentThread());
+    synchronized (allCaches) {
+      if (closed) {
+        throw new IllegalStateException("pool is closed");
+      }
+      allCaches.add(cache);
+    }
+    return cache;
+  }
+
+  /**
+   * Returns a buffer of at least {@code size} bytes from the calling
+   * thread's free list, carving a new slab if it is empty.
+   */
+  public Buffer acquire(int size) {
+    if (size < 1 || size > maxBufferSize) {
+      throw new IllegalArgumentException("size must be in [1, " + maxBufferSize + "]: " + size);
+    }
+    Cache cache = caches.get();
+    int sizeClass = sizeClass(size);
+    Buffer buffer = cache.free[sizeClass].pollFirst();
+    if (buffer == null) {
+      cache.carveSlab(sizeClass);
+      buffer = cache.free[sizeClass].pollFirst();
+    }
+    buffer.inUse = true;
+    buffer.size = size;
+    buffer.byteBuffer.clear().limit(size);
+    cache.addOutstanding(1);
+    return buffer;
+  }
+
+  /** Off-heap bytes carved into buffers so far. */
+  public long allocatedBytes() {
+    return allocatedBytes.get();
+  }
+
+  /** Buffers acquired and not yet released, over all threads. */
+  public long outstanding() {
+    synchronized (allCaches) {
+      long n = 0;
+      for (Cache cache : allCaches) {
+        n += (long) OUTSTANDING.getOpaque(cache);
+      }
+      return n;
+    }
+  }
+
+  /**
+   * Frees every slab. Call only after all threads are done with the pool.
+   *
+   * @throws IllegalStateException if buffers were never released
+   */
+  @Override
+  public void close() {
+    long leaked;
+    synchronized (allCaches) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      leaked = outstanding();
+    }
+    arena.close();
+    if (leaked > 0) {
+      throw new IllegalStateException(leaked + " pooled buffers were not released");
+    }
+  }
+
+  private final class Cache {
+    final Thread owner;
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    final ArrayDeque<Buffer>[] free = new ArrayDeque[classCount];
+    /** Written by the owner only, with opaque stores for other readers. */
+    long outstanding;
+
+    Cache(Thread owner) {
+      this.owner = owner;
+      for (int i = 0; i < classCount; i++) {
+        free[i] = new ArrayDeque<>();
+      }
+    }
+
+    void addOutstanding(int delta) {
+      OUTSTANDING.setOpaque(this, outstanding + delta);
+    }
+
+    void carveSlab(int sizeClass) {
+      long size = classSize(sizeClass);
+      int count = (int) Math.max(1, slabBytes / size);
+      MemorySegment slab = arena.allocate(size * count, alignment);
+      allocatedBytes.addAndGet(slab.byteSize());
+      for (int i = 0; i < count; i++) {
+        free[sizeClass].addLast(new Buffer(this, sizeClass, slab.asSlice(i * size, size)));
+      }
+    }
+  }
+
+  /**
+   * A pooled buffer; {@link #close()} releases it. The same object is
+   * handed out again after release, so it must not be used afterwards.
+   */
+  public final class Buffer implements AutoCloseable {
+    private final Cache cache;
+    private final int sizeClass;
+    private final MemorySegment segment;
+    private final ByteBuffer byteBuffer;
+    private boolean inUse;
+    private int size;
+
+    private Buffer(Cache cache, int sizeClass, MemorySegment segment) {
+      this.cache = cache;
+      this.sizeClass = sizeClass;
+      this.segment = segment;
+      this.byteBuffer = segment.asByteBuffer();
+    }
+
+    /** The whole size class, which may be larger than the requested size. */
+    public MemorySegment segment() {
+      return segment;
+    }
+
+    /** A view cleared to the requested size when acquired. */
+    public ByteBuffer byteBuffer() {
+      return byteBuffer;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void close() {
+      if (!inUse) {
+        throw new IllegalStateException("buffer released twice");
+      }
+      if (Thread.currentThread() != cache.owner) {
+        throw new IllegalStateException("buffer released by " + Thread.currentThread()
+            + ", acquired by " + cache.owner);
+      }
+      inUse = false;
+      cache.addOutstanding(-1);
+      cache.free[sizeClass].addFirst(this);
+    }
+  }
+}
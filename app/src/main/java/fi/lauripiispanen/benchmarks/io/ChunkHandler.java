@@ -0,0 +1,15 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives one chunk read at {@code offset}, from {@link ReadPlanner} or
+ * {@link PipelinedAsyncReader}. The chunk's bytes are those between
+ * {@code data.position()} and {@code data.limit()}; the position need not
+ * be zero, since a planned read hands out views into one larger read.
+ * {@code data} is only valid during the call.
+ */
+@FunctionalInterface
+public interface ChunkHandler {
+  void chunk(long offset, ByteBuffer data);
+}
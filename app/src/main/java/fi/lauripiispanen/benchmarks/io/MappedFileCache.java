@@ -0,0 +1,231 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Read-only memory mappings of files, shared between threads and kept
+ * under a byte budget with least-recently-used eviction.
+ *
+ * Each mapping lives in its own shared {@link Arena}, so unmapping happens
+ * exactly when the arena is closed instead of whenever a
+ * {@code MappedByteBuffer} is collected. Readers {@link #acquire} a
+ * {@link Lease} and close it when done; an evicted mapping stays valid
+ * until its last lease is closed. Files larger than the whole budget are
+ * mapped for the lease only and never cached.
+ *
+ * The LRU order is a {@code LinkedHashMap} behind one lock that is held only
+ * for the lookup, never while mapping a file.
+ */
+public final class MappedFileCache implements AutoCloseable {
+
+  private final long maxBytes;
+  private final LinkedHashMap<Path, Mapping> mappings = new LinkedHashMap<>(16, 0.75f, true);
+  private long mappedBytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private boolean closed;
+
+  public MappedFileCache(long maxBytes) {
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns a lease on the mapping of {@code path}, mapping the file on a
+   * miss. The file is assumed not to change while it is cached.
+   */
+  public Lease acquire(Path path) throws IOException {
+    Mapping mapping;
+    synchronized (this) {
+      checkOpen();
+      mapping = mappings.get(path);
+      if (mapping != null) {
+        hits++;
+        mapping.refCount++;
+        return new Lease(mapping, true);
+      }
+      misses++;
+    }
+
+    Mapping fresh = map(path);
+    if (fresh.segment.byteSize() > maxBytes) {
+      fresh.evicted = true;
+      fresh.refCount = 1;
+      return new Lease(fresh, false);
+    }
+
+    Mapping unused = null;
+    List<Mapping> unmap = new ArrayList<>();
+    synchronized (this) {
+      if (closed) {
+        unused = fresh;
+        mapping = null;
+      } else {
+        mapping = mappings.get(path);
+        if (mapping == null) {
+          mapping = fresh;
+          mappings.put(path, mapping);
+          mappedBytes += mapping.segment.byteSize();
+          evictOverBudget(mapping, unmap);
+        } else {
+          // Another thread mapped it first
+          unused = fresh;
+        }
+        mapping.refCount++;
+      }
+    }
+    if (unused != null) {
+      unused.arena.close();
+    }
+    closeAll(unmap);
+    if (mapping == null) {
+      throw new IllegalStateException("cache is closed");
+    }
+    return new Lease(mapping, false);
+  }
+
+  private static void closeAll(List<Mapping> unmap) {
+    for (Mapping mapping : unmap) {
+      mapping.arena.close();
+    }
+  }
+
+  private static Mapping map(Path path) throws IOException {
+    Arena arena = Arena.ofShared();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new Mapping(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  /** Adds mappings that are no longer leased to {@code unmap}, to be closed outside the lock. */
+  private void evictOverBudget(Mapping keep, List<Mapping> unmap) {
+    Iterator<Mapping> it = mappings.values().iterator();
+    while (mappedBytes > maxBytes && it.hasNext()) {
+      Mapping eldest = it.next();
+      if (eldest == keep) {
+        continue;
+      }
+      it.remove();
+      mappedBytes -= eldest.segment.byteSize();
+      evictions++;
+      eldest.evicted = true;
+      if (eldest.refCount == 0) {
+        unmap.add(eldest);
+      }
+    }
+  }
+
+  private void release(Mapping mapping) {
+    boolean unmap;
+    synchronized (this) {
+      unmap = --mapping.refCount == 0 && mapping.evicted;
+    }
+    if (unmap) {
+      mapping.arena.close();
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("cache is closed");
+    }
+  }
+
+  public synchronized long mappedBytes() {
+    return mappedBytes;
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  /** Number of files mapped, including ones too large to cache. */
+  public synchronized long misses() {
+    return misses;
+  }
+
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  /**
+   * Unmaps every cached file that is not leased; leased ones are unmapped
+   * when their last lease is closed.
+   */
+  @Override
+  public void close() {
+    List<Mapping> unmap = new ArrayList<>();
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (Mapping mapping : mappings.values()) {
+        mapping.evicted = true;
+        if (mapping.refCount == 0) {
+          unmap.add(mapping);
+        }
+      }
+      mappings.clear();
+      mappedBytes = 0;
+    }
+    closeAll(unmap);
+  }
+
+  private static final class Mapping {
+    final Arena arena;
+    final MemorySegment segment;
+    // guarded by the cache
+    int refCount;
+    boolean evicted;
+
+    Mapping(Arena arena, MemorySegment segment) {
+      this.arena = arena;
+      this.segment = segment;
+    }
+  }
+
+  /** A read-only view of a cached file, valid until closed. */
+  public final class Lease implements AutoCloseable {
+    private final Mapping mapping;
+    private final boolean hit;
+    private boolean released;
+
+    private Lease(Mapping mapping, boolean hit) {
+      this.mapping = mapping;
+      this.hit = hit;
+    }
+
+    public MemorySegment segment() {
+      return mapping.segment;
+    }
+
+    /** Whether the file was already mapped when this lease was acquired. */
+    public boolean hit() {
+      return hit;
+    }
+
+    @Override
+    public void close() {
+      if (!released) {
+        released = true;
+        release(mapping);
+      }
+    }
+  }
+}
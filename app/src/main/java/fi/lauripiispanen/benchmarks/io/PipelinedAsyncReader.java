@@ -0,0 +1,205 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Reads an {@link AsynchronousFileChannel} with up to {@code queueDepth}
+ * reads in flight, instead of blocking on each {@code Future}.
+ *
+ * Each in-flight read owns one buffer of a fixed pool. Completion handlers
+ * only hand finished buffers back to the calling thread, which processes
+ * them in completion order and reuses each buffer for the next read. A
+ * reader is meant for one thread and keeps its buffers between calls.
+ */
+public final class PipelinedAsyncReader {
+
+  private final int bufferSize;
+  private final Slot[] slots;
+  private final ArrayBlockingQueue<Slot> completions;
+  private final ReadHandler handler = new ReadHandler();
+
+  public PipelinedAsyncReader(int queueDepth, int bufferSize) {
+    this(queueDepth, bufferSize, 1);
+  }
+
+  /**
+   * @param alignment address alignment of the buffers, e.g. the block size
+   *                  for channels opened with {@code DIRECT}
+   */
+  public PipelinedAsyncReader(int queueDepth, int bufferSize, int alignment) {
+    if (queueDepth < 1) {
+      throw new IllegalArgumentException("queueDepth must be positive: " + queueDepth);
+    }
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+    if (Integer.bitCount(alignment) != 1) {
+      throw new IllegalArgumentException("alignment must be a power of two: " + alignment);
+    }
+    this.bufferSize = bufferSize;
+    this.slots = new Slot[queueDepth];
+    for (int i = 0; i < queueDepth; i++) {
+      ByteBuffer buffer = alignment == 1
+          ? ByteBuffer.allocateDirect(bufferSize)
+          : ByteBuffer.allocateDirect(bufferSize + alignment).alignedSlice(alignment).slice(0, bufferSize);
+      slots[i] = new Slot(buffer);
+    }
+    this.completions = new ArrayBlockingQueue<>(queueDepth);
+  }
+
+  public int queueDepth() {
+    return slots.length;
+  }
+
+  public int bufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Reads the whole file in {@code bufferSize} chunks. Chunks are handled
+   * in completion order, not file order.
+   *
+   * @return bytes read
+   */
+  public long readWhole(AsynchronousFileChannel channel, ChunkHandler chunks) throws IOException {
+    long size = channel.size();
+    long count = (size + bufferSize - 1) / bufferSize;
+    if (count > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("file too large for bufferSize " + bufferSize + ": " + size);
+    }
+    return pump(channel, (int) count, i -> (long) i * bufferSize, chunks);
+  }
+
+  /**
+   * Reads up to {@code bufferSize} bytes at each offset; reads are shorter
+   * only at the end of the file.
+   *
+   * @return bytes read
+   */
+  public long read(AsynchronousFileChannel channel, long[] offsets, ChunkHandler chunks) throws IOException {
+    return pump(channel, offsets.length, i -> offsets[i], chunks);
+  }
+
+  private long pump(AsynchronousFileChannel channel, int count, IntToLongFunction offsetOf, ChunkHandler chunks)
+      throws IOException {
+    int next = 0;
+    int inFlight = 0;
+    long total = 0;
+    Throwable failure = null;
+    boolean interrupted = false;
+
+    try {
+      while (next < count && inFlight < slots.length) {
+        submit(channel, slots[inFlight], offsetOf.applyAsLong(next));
+        next++;
+        inFlight++;
+      }
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+    // Once something has failed, only drain: buffers must not be reused
+    // while reads into them are still running
+    while (inFlight > 0) {
+      Slot slot;
+      try {
+        slot = completions.take();
+      } catch (InterruptedException e) {
+        interrupted = true;
+        continue;
+      }
+      inFlight--;
+      if (slot.failure != null) {
+        if (failure == null) {
+          failure = slot.failure;
+        }
+        slot.failure = null;
+        continue;
+      }
+      if (failure != null) {
+        continue;
+      }
+      try {
+        ByteBuffer data = slot.buffer.flip();
+        total += data.remaining();
+        chunks.chunk(slot.offset, data);
+        if (next < count) {
+          submit(channel, slot, offsetOf.applyAsLong(next));
+          next++;
+          inFlight++;
+        }
+      } catch (RuntimeException | Error e) {
+        failure = e;
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure instanceof IOException e) {
+      throw e;
+    }
+    if (failure instanceof RuntimeException e) {
+      throw e;
+    }
+    if (failure instanceof Error e) {
+      throw e;
+    }
+    if (failure != null) {
+      throw new IOException("read failed", failure);
+    }
+    return total;
+  }
+
+  private void submit(AsynchronousFileChannel channel, Slot slot, long offset) {
+    slot.channel = channel;
+    slot.offset = offset;
+    slot.buffer.clear();
+    channel.read(slot.buffer, offset, slot, handler);
+  }
+
+  private static final class Slot {
+    final ByteBuffer buffer;
+    AsynchronousFileChannel channel;
+    long offset;
+    Throwable failure;
+
+    Slot(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
+
+  private final class ReadHandler implements CompletionHandler<Integer, Slot> {
+    @Override
+    public void completed(Integer read, Slot slot) {
+      ByteBuffer buffer = slot.buffer;
+      if (read > 0 && buffer.hasRemaining()) {
+        // Short read; continue until the buffer is full or the file ends
+        try {
+          slot.channel.read(buffer, slot.offset + buffer.position(), slot, this);
+          return;
+        } catch (RuntimeException e) {
+          slot.failure = e;
+        }
+      }
+      complete(slot);
+    }
+
+    @Override
+    public void failed(Throwable exc, Slot slot) {
+      slot.failure = exc;
+      complete(slot);
+    }
+
+    private void complete(Slot slot) {
+      // Every slot has at most one read in flight, so the queue never fills
+      if (!completions.offer(slot)) {
+        throw new IllegalStateException("completion queue full");
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Turns a batch of fixed-size random reads into fewer, larger ones: the
+ * offsets are sorted, and chunks that overlap or lie within {@code maxGap}
+ * bytes of each other are read with one positional read, as long as the
+ * merged range fits the caller's buffer. Each chunk is then handed out as a
+ * view of the merged read.
+ *
+ * A planner keeps a scratch copy of the offsets, so it is meant for one
+ * thread.
+ */
+public final class ReadPlanner {
+
+  private final int maxGap;
+  private long[] sorted = new long[0];
+  private long readCalls;
+  private long bytesRead;
+
+  public ReadPlanner(int maxGap) {
+    if (maxGap < 0) {
+      throw new IllegalArgumentException("maxGap must not be negative: " + maxGap);
+    }
+    this.maxGap = maxGap;
+  }
+
+  /**
+   * Reads {@code chunkSize} bytes at each offset, or fewer at the end of the
+   * file, and passes every chunk to {@code chunks} in offset order. Merged
+   * reads are at most {@code buffer.capacity()} bytes long.
+   *
+   * @return number of reads issued
+   */
+  public int read(FileChannel channel, long[] offsets, int chunkSize, ByteBuffer buffer, ChunkHandler chunks)
+      throws IOException {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+    }
+    if (buffer.capacity() < chunkSize) {
+      throw new IllegalArgumentException("buffer smaller than chunkSize: " + buffer.capacity());
+    }
+    int n = offsets.length;
+    if (sorted.length < n) {
+      sorted = new long[n];
+    }
+    System.arraycopy(offsets, 0, sorted, 0, n);
+    Arrays.sort(sorted, 0, n);
+
+    long fileSize = channel.size();
+    int maxRead = buffer.capacity();
+    int calls = 0;
+    for (int i = 0; i < n; ) {
+      long start = sorted[i];
+      long end = Math.min(start + chunkSize, fileSize);
+      int j = i + 1;
+      while (j < n && sorted[j] - end <= maxGap) {
+        long chunkEnd = Math.min(sorted[j] + chunkSize, fileSize);
+        if (chunkEnd - start > maxRead) {
+          break;
+        }
+        end = Math.max(end, chunkEnd);
+        j++;
+      }
+
+      buffer.clear().limit((int) Math.max(0, end - start));
+      while (buffer.hasRemaining()) {
+        calls++;
+        if (channel.read(buffer, start + buffer.position()) < 0) {
+          break;
+        }
+      }
+      int read = buffer.position();
+      bytesRead += read;
+
+      for (int k = i; k < j; k++) {
+        int from = (int) (sorted[k] - start);
+        buffer.limit(Math.min(from + chunkSize, read)).position(Math.min(from, read));
+        chunks.chunk(sorted[k], buffer);
+      }
+      i = j;
+    }
+    readCalls += calls;
+    return calls;
+  }
+
+  public int maxGap() {
+    return maxGap;
+  }
+
+  /** Reads issued over all calls. */
+  public long readCalls() {
+    return readCalls;
+  }
+
+  /** Bytes read over all calls, gaps included. */
+  public long bytesRead() {
+    return bytesRead;
+  }
+}
@@ -0,0 +1,245 @@
+package fi.lauripiispanen.benchmarks.io;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sparse index of record start offsets in a newline-delimited file, kept
+ * in a memory-mapped sidecar file.
+ *
+ * Every {@code stride}-th record start is stored, plus the data size as an
+ * end sentinel, so record {@code K} lies in the group starting at entry
+ * {@code K / stride} and can be fetched with one read of that group. A
+ * byte offset is mapped back to a record boundary by binary search.
+ * Smaller strides mean shorter reads and a bigger index.
+ *
+ * Sidecar layout (native byte order):
+ * <pre>
+ *   0  magic          long
+ *   8  version        int
+ *  12  stride         int
+ *  16  recordCount    long
+ *  24  dataSize       long
+ *  32  maxGroupBytes  long
+ *  40  reserved       (pad to 64 bytes)
+ *  64  offsets        long[ceil(recordCount / stride) + 1]
+ * </pre>
+ */
+public final class RecordIndex implements AutoCloseable {
+
+  public static final long MAGIC = 0x3158444e49434552L; // "RECINDX1"
+  public static final int VERSION = 1;
+  public static final int HEADER_BYTES = 64;
+
+  private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+  private static final int SCAN_BLOCK = 1 << 20;
+
+  private final Arena arena;
+  private final MemorySegment file;
+  private final MemorySegment offsets;
+  private final int stride;
+  private final long recordCount;
+  private final long dataSize;
+  private final long maxGroupBytes;
+  private final long entries;
+
+  private RecordIndex(Arena arena, MemorySegment file) {
+    this.arena = arena;
+    this.file = file;
+    if (file.byteSize() < HEADER_BYTES || file.get(LONG, 0) != MAGIC) {
+      throw new IllegalArgumentException("not a record index (bad magic or byte order)");
+    }
+    int version = file.get(ValueLayout.JAVA_INT, 8);
+    if (version != VERSION) {
+      throw new IllegalArgumentException("unsupported record index version: " + version);
+    }
+    this.stride = file.get(ValueLayout.JAVA_INT, 12);
+    this.recordCount = file.get(LONG, 16);
+    this.dataSize = file.get(LONG, 24);
+    this.maxGroupBytes = file.get(LONG, 32);
+    this.entries = (file.byteSize() - HEADER_BYTES) / 8;
+    if (stride < 1 || entries != (recordCount + stride - 1) / stride + 1) {
+      throw new IllegalArgumentException("corrupt record index header");
+    }
+    this.offsets = file.asSlice(HEADER_BYTES);
+  }
+
+  public static RecordIndex open(Path path) throws IOException {
+    Arena arena = Arena.ofShared();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new RecordIndex(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Indexes {@code data} in one streaming pass, writing every
+   * {@code stride}-th record start to {@code index}. A last line without a
+   * trailing newline still counts as a record.
+   *
+   * @return number of records
+   */
+  public static long build(Path data, Path index, int stride) throws IOException {
+    if (stride < 1) {
+      throw new IllegalArgumentException("stride must be positive: " + stride);
+    }
+    try (FileChannel in = FileChannel.open(data, StandardOpenOption.READ);
+        FileChannel out = FileChannel.open(index,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer block = ByteBuffer.allocateDirect(SCAN_BLOCK);
+      ByteBuffer entries = ByteBuffer.allocateDirect(SCAN_BLOCK).order(ByteOrder.nativeOrder());
+      long dataSize = in.size();
+      long position = HEADER_BYTES;
+      long records = 0;
+      long maxGroupBytes = 0;
+      long groupStart = 0;
+      // true when the next byte starts a record
+      boolean atStart = true;
+
+      for (long base = 0; base < dataSize; ) {
+        block.clear();
+        int read = in.read(block, base);
+        if (read <= 0) {
+          break;
+        }
+        for (int i = 0; i < read; i++) {
+          if (atStart) {
+            if (records % stride == 0) {
+              long offset = base + i;
+              if (records > 0) {
+                maxGroupBytes = Math.max(maxGroupBytes, offset - groupStart);
+              }
+              groupStart = offset;
+              if (!entries.hasRemaining()) {
+                position += writeFully(out, entries.flip(), position);
+                entries.clear();
+              }
+              entries.putLong(offset);
+            }
+            records++;
+            atStart = false;
+          }
+          if (block.get(i) == '\n') {
+            atStart = true;
+          }
+        }
+        base += read;
+      }
+      maxGroupBytes = Math.max(maxGroupBytes, dataSize - groupStart);
+      if (!entries.hasRemaining()) {
+        position += writeFully(out, entries.flip(), position);
+        entries.clear();
+      }
+      entries.putLong(dataSize);
+      writeFully(out, entries.flip(), position);
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+      header.putLong(MAGIC).putInt(VERSION).putInt(stride)
+          .putLong(records).putLong(dataSize).putLong(maxGroupBytes)
+          .clear();
+      writeFully(out, header, 0);
+      return records;
+    }
+  }
+
+  private static int writeFully(FileChannel channel, ByteBuffer buffer, long at) throws IOException {
+    int n = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      at += channel.write(buffer, at);
+    }
+    return n;
+  }
+
+  public int stride() {
+    return stride;
+  }
+
+  public long recordCount() {
+    return recordCount;
+  }
+
+  /** Size of the indexed data file. */
+  public long dataSize() {
+    return dataSize;
+  }
+
+  /** Size of the sidecar file. */
+  public long byteSize() {
+    return file.byteSize();
+  }
+
+  /** Longest read {@link #readRecord} needs; size its buffer to this. */
+  public long maxGroupBytes() {
+    return maxGroupBytes;
+  }
+
+  /**
+   * @return start of the last indexed record at or before {@code byteOffset}
+   */
+  public long floorRecordStart(long byteOffset) {
+    long lo = 0;
+    long hi = entries - 2;
+    while (lo < hi) {
+      long mid = (lo + hi + 1) >>> 1;
+      if (offsets.get(LONG, mid * 8) <= byteOffset) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return offsets.get(LONG, lo * 8);
+  }
+
+  /**
+   * Reads the group holding record {@code k} with one positional read and
+   * leaves {@code buf}'s position and limit around the record, without its
+   * newline.
+   *
+   * @return the record length
+   */
+  public int readRecord(FileChannel channel, long k, ByteBuffer buf) throws IOException {
+    if (k < 0 || k >= recordCount) {
+      throw new IndexOutOfBoundsException("record out of range: " + k);
+    }
+    long entry = k / stride;
+    long start = offsets.get(LONG, entry * 8);
+    long end = offsets.get(LONG, (entry + 1) * 8);
+    if (buf.capacity() < end - start) {
+      throw new IllegalArgumentException("buffer smaller than group of " + (end - start) + " bytes");
+    }
+    buf.clear().limit((int) (end - start));
+    while (buf.hasRemaining()) {
+      if (channel.read(buf, start + buf.position()) < 0) {
+        break;
+      }
+    }
+    int limit = buf.position();
+
+    int p = 0;
+    for (long skip = k % stride; skip > 0; p++) {
+      if (buf.get(p) == '\n') {
+        skip--;
+      }
+    }
+    int e = p;
+    while (e < limit && buf.get(e) != '\n') {
+      e++;
+    }
+    buf.limit(e).position(p);
+    return e - p;
+  }
+
+  @Override
+  public void close() {
+    arena.close();
+  }
+}
@@ -0,0 +1,195 @@
+package fi.lauripiispanen.benchmarks.map;
+
+/**
+ * Open-addressing {@link LongLongMap} with linear probing over a single
+ * {@code long[]}. Key and value of a slot sit next to each other, so a hit
+ * usually costs one cache line. The table size is a power of two and slots
+ * are found with a mask.
+ *
+ * Key 0 marks an empty slot and is stored out of line. Removal shifts the
+ * following entries back instead of leaving tombstones. Not thread-safe.
+ */
+public class HeapLongLongMap implements LongLongMap {
+
+  public static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+  private static final int MAX_CAPACITY = 1 << 29;
+
+  private final double loadFactor;
+  private long[] table;
+  private int mask;
+  private int size;
+  private int resizeAt;
+
+  private boolean hasZeroKey;
+  private long zeroValue;
+
+  public HeapLongLongMap() {
+    this(16, DEFAULT_LOAD_FACTOR);
+  }
+
+  public HeapLongLongMap(long expectedSize) {
+    this(expectedSize, DEFAULT_LOAD_FACTOR);
+  }
+
+  public HeapLongLongMap(long expectedSize, double loadFactor) {
+    long capacity = LongLongMap.tableCapacity(expectedSize, loadFactor);
+    if (capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("expectedSize too large for a heap table: " + expectedSize);
+    }
+    this.loadFactor = loadFactor;
+    allocate((int) capacity);
+  }
+
+  private void allocate(int capacity) {
+    table = new long[capacity * 2];
+    mask = capacity - 1;
+    resizeAt = (int) (capacity * loadFactor);
+  }
+
+  private int slot(long key) {
+    return (int) LongLongMap.mix(key) & mask;
+  }
+
+  @Override
+  public long getOrDefault(long key, long defaultValue) {
+    if (key == 0) {
+      return hasZeroKey ? zeroValue : defaultValue;
+    }
+    long[] table = this.table;
+    for (int i = slot(key);; i = (i + 1) & mask) {
+      long k = table[i << 1];
+      if (k == key) {
+        return table[(i << 1) + 1];
+      }
+      if (k == 0) {
+        return defaultValue;
+      }
+    }
+  }
+
+  @Override
+  public boolean containsKey(long key) {
+    if (key == 0) {
+      return hasZeroKey;
+    }
+    long[] table = this.table;
+    for (int i = slot(key);; i = (i + 1) & mask) {
+      long k = table[i << 1];
+      if (k == key) {
+        return true;
+      }
+      if (k == 0) {
+        return false;
+      }
+    }
+  }
+
+  @Override
+  public void put(long key, long value) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        size++;
+      }
+      zeroValue = value;
+      return;
+    }
+    long[] table = this.table;
+    for (int i = slot(key);; i = (i + 1) & mask) {
+      long k = table[i << 1];
+      if (k == key) {
+        table[(i << 1) + 1] = value;
+        return;
+      }
+      if (k == 0) {
+        table[i << 1] = key;
+        table[(i << 1) + 1] = value;
+        if (++size > resizeAt) {
+          rehash();
+        }
+        return;
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(long key) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        return false;
+      }
+      hasZeroKey = false;
+      size--;
+      return true;
+    }
+    long[] table = this.table;
+    int i = slot(key);
+    while (true) {
+      long k = table[i << 1];
+      if (k == 0) {
+        return false;
+      }
+      if (k == key) {
+        break;
+      }
+      i = (i + 1) & mask;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe run into the hole
+    int hole = i;
+    for (int j = (hole + 1) & mask;; j = (j + 1) & mask) {
+      long k = table[j << 1];
+      if (k == 0) {
+        break;
+      }
+      int home = slot(k);
+      // move k if its home slot is not cyclically within (hole, j]
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        table[hole << 1] = k;
+        table[(hole << 1) + 1] = table[(j << 1) + 1];
+        hole = j;
+      }
+    }
+    table[hole << 1] = 0;
+    table[(hole << 1) + 1] = 0;
+    size--;
+    return true;
+  }
+
+  private void rehash() {
+    int capacity = mask + 1;
+    if (capacity >= MAX_CAPACITY) {
+      throw new IllegalStateException("map is full");
+    }
+    long[] old = table;
+    allocate(capacity * 2);
+    long[] table = this.table;
+    for (int j = 0; j < old.length; j += 2) {
+      long k = old[j];
+      if (k != 0) {
+        int i = slot(k);
+        while (table[i << 1] != 0) {
+          i = (i + 1) & mask;
+        }
+        table[i << 1] = k;
+        table[(i << 1) + 1] = old[j + 1];
+      }
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public long capacity() {
+    return mask + 1;
+  }
+
+  @Override
+  public long footprintBytes() {
+    return (long) table.length * Long.BYTES;
+  }
+}
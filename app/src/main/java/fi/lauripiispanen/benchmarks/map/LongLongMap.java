@@ -0,0 +1,43 @@
+package fi.lauripiispanen.benchmarks.map;
+
+/**
+ * Primitive {@code long -> long} map. No boxing and no per-entry objects.
+ */
+public interface LongLongMap {
+
+  /**
+   * @return the value mapped to {@code key}, or {@code defaultValue} if there is none
+   */
+  long getOrDefault(long key, long defaultValue);
+
+  boolean containsKey(long key);
+
+  void put(long key, long value);
+
+  /**
+   * @return true if the key was present
+   */
+  boolean remove(long key);
+
+  long size();
+
+  /** Number of slots in the table. */
+  long capacity();
+
+  /** Bytes used by the table itself. */
+  long footprintBytes();
+
+  /** Spreads key bits so that masking off the low bits gives a usable index. */
+  static long mix(long key) {
+    long h = key * 0x9e3779b97f4a7c15L;
+    return h ^ (h >>> 32);
+  }
+
+  static long tableCapacity(long expectedSize, double loadFactor) {
+    if (!(loadFactor > 0.0 && loadFactor < 1.0)) {
+      throw new IllegalArgumentException("loadFactor must be in (0, 1): " + loadFactor);
+    }
+    long needed = (long) Math.ceil(Math.max(1, expectedSize) / loadFactor) + 1;
+    return Math.max(16L, Long.highestOneBit(needed - 1) << 1);
+  }
+}
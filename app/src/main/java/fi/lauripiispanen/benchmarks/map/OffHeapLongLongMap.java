@@ -0,0 +1,195 @@
+package fi.lauripiispanen.benchmarks.map;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * {@link HeapLongLongMap} with the table in native memory. Same layout and
+ * probing, but the entries are invisible to the GC and the table can grow
+ * past the 2^31 element limit of a Java array.
+ *
+ * Each table lives in its own confined {@link Arena}, freed when the map
+ * grows or is closed, so a map can only be used by the thread that created
+ * it.
+ */
+public class OffHeapLongLongMap implements LongLongMap, AutoCloseable {
+
+  private static final ValueLayout.OfLong SLOT = ValueLayout.JAVA_LONG;
+
+  private final double loadFactor;
+  private Arena arena;
+  private MemorySegment table;
+  private long mask;
+  private long size;
+  private long resizeAt;
+
+  private boolean hasZeroKey;
+  private long zeroValue;
+
+  public OffHeapLongLongMap(long expectedSize) {
+    this(expectedSize, HeapLongLongMap.DEFAULT_LOAD_FACTOR);
+  }
+
+  public OffHeapLongLongMap(long expectedSize, double loadFactor) {
+    this.loadFactor = loadFactor;
+    allocate(LongLongMap.tableCapacity(expectedSize, loadFactor));
+  }
+
+  private void allocate(long capacity) {
+    arena = Arena.ofConfined();
+    // allocate() zero-fills, and zero is the empty key
+    table = arena.allocate(capacity * 2 * Long.BYTES, 64);
+    mask = capacity - 1;
+    resizeAt = (long) (capacity * loadFactor);
+  }
+
+  private long slot(long key) {
+    return LongLongMap.mix(key) & mask;
+  }
+
+  @Override
+  public long getOrDefault(long key, long defaultValue) {
+    if (key == 0) {
+      return hasZeroKey ? zeroValue : defaultValue;
+    }
+    MemorySegment table = this.table;
+    for (long i = slot(key);; i = (i + 1) & mask) {
+      long k = table.getAtIndex(SLOT, i << 1);
+      if (k == key) {
+        return table.getAtIndex(SLOT, (i << 1) + 1);
+      }
+      if (k == 0) {
+        return defaultValue;
+      }
+    }
+  }
+
+  @Override
+  public boolean containsKey(long key) {
+    if (key == 0) {
+      return hasZeroKey;
+    }
+    MemorySegment table = this.table;
+    for (long i = slot(key);; i = (i + 1) & mask) {
+      long k = table.getAtIndex(SLOT, i << 1);
+      if (k == key) {
+        return true;
+      }
+      if (k == 0) {
+        return false;
+      }
+    }
+  }
+
+  @Override
+  public void put(long key, long value) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        size++;
+      }
+      zeroValue = value;
+      return;
+    }
+    MemorySegment table = this.table;
+    for (long i = slot(key);; i = (i + 1) & mask) {
+      long k = table.getAtIndex(SLOT, i << 1);
+      if (k == key) {
+        table.setAtIndex(SLOT, (i << 1) + 1, value);
+        return;
+      }
+      if (k == 0) {
+        table.setAtIndex(SLOT, i << 1, key);
+        table.setAtIndex(SLOT, (i << 1) + 1, value);
+        if (++size > resizeAt) {
+          rehash();
+        }
+        return;
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(long key) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        return false;
+      }
+      hasZeroKey = false;
+      size--;
+      return true;
+    }
+    MemorySegment table = this.table;
+    long i = slot(key);
+    while (true) {
+      long k = table.getAtIndex(SLOT, i << 1);
+      if (k == 0) {
+        return false;
+      }
+      if (k == key) {
+        break;
+      }
+      i = (i + 1) & mask;
+    }
+
+    // Backward-shift deletion, see HeapLongLongMap
+    long hole = i;
+    for (long j = (hole + 1) & mask;; j = (j + 1) & mask) {
+      long k = table.getAtIndex(SLOT, j << 1);
+      if (k == 0) {
+        break;
+      }
+      long home = slot(k);
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        table.setAtIndex(SLOT, hole << 1, k);
+        table.setAtIndex(SLOT, (hole << 1) + 1, table.getAtIndex(SLOT, (j << 1) + 1));
+        hole = j;
+      }
+    }
+    table.setAtIndex(SLOT, hole << 1, 0L);
+    table.setAtIndex(SLOT, (hole << 1) + 1, 0L);
+    size--;
+    return true;
+  }
+
+  private void rehash() {
+    Arena oldArena = arena;
+    MemorySegment old = table;
+    long oldSlots = (mask + 1) * 2;
+    allocate((mask + 1) * 2);
+    MemorySegment table = this.table;
+    for (long j = 0; j < oldSlots; j += 2) {
+      long k = old.getAtIndex(SLOT, j);
+      if (k != 0) {
+        long i = slot(k);
+        while (table.getAtIndex(SLOT, i << 1) != 0) {
+          i = (i + 1) & mask;
+        }
+        table.setAtIndex(SLOT, i << 1, k);
+        table.setAtIndex(SLOT, (i << 1) + 1, old.getAtIndex(SLOT, j + 1));
+      }
+    }
+    oldArena.close();
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public long capacity() {
+    return mask + 1;
+  }
+
+  @Override
+  public long footprintBytes() {
+    return table.byteSize();
+  }
+
+  @Override
+  public void close() {
+    arena.close();
+  }
+}
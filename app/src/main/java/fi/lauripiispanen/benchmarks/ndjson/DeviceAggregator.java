@@ -0,0 +1,165 @@
+package fi.lauripiispanen.benchmarks.ndjson;
+
+import fi.lauripiispanen.benchmarks.map.HeapLongLongMap;
+import fi.lauripiispanen.benchmarks.map.LongLongMap;
+
+import java.util.Arrays;
+
+/**
+ * Per-device count, min, max and sum of {@code val}.
+ *
+ * Statistics live in parallel primitive arrays, one slot per device in
+ * order of first appearance. Device ids below {@link #DIRECT_LIMIT} find
+ * their slot through a plain {@code int[]}; larger ones through a
+ * {@link HeapLongLongMap}. Not thread-safe: aggregate per thread and
+ * {@link #merge} the results.
+ */
+public final class DeviceAggregator implements RecordSink {
+
+  public static final int DIRECT_LIMIT = 1 << 20;
+
+  /** slot + 1 by device id, 0 if the device has not been seen */
+  private int[] directSlots = new int[1024];
+  private LongLongMap largeSlots = new HeapLongLongMap();
+
+  private int[] devices = new int[64];
+  private long[] counts = new long[64];
+  private long[] mins = new long[64];
+  private long[] maxs = new long[64];
+  private long[] sums = new long[64];
+  private int size;
+  private long records;
+
+  @Override
+  public void accept(int device, long ts, long val) {
+    add(slot(device), 1, val, val, val);
+  }
+
+  private void add(int slot, long count, long min, long max, long sum) {
+    counts[slot] += count;
+    if (min < mins[slot]) {
+      mins[slot] = min;
+    }
+    if (max > maxs[slot]) {
+      maxs[slot] = max;
+    }
+    sums[slot] += sum;
+    records += count;
+  }
+
+  private int slot(int device) {
+    if (device >= 0 && device < DIRECT_LIMIT) {
+      if (device < directSlots.length) {
+        int slot = directSlots[device];
+        if (slot != 0) {
+          return slot - 1;
+        }
+      } else {
+        directSlots = Arrays.copyOf(directSlots,
+            Math.min(DIRECT_LIMIT, Integer.highestOneBit(device) << 1));
+      }
+      int slot = newSlot(device);
+      directSlots[device] = slot + 1;
+      return slot;
+    }
+    long slot = largeSlots.getOrDefault(device, -1L);
+    if (slot < 0) {
+      slot = newSlot(device);
+      largeSlots.put(device, slot);
+    }
+    return (int) slot;
+  }
+
+  private int newSlot(int device) {
+    if (size == devices.length) {
+      int capacity = size * 2;
+      devices = Arrays.copyOf(devices, capacity);
+      counts = Arrays.copyOf(counts, capacity);
+      mins = Arrays.copyOf(mins, capacity);
+      maxs = Arrays.copyOf(maxs, capacity);
+      sums = Arrays.copyOf(sums, capacity);
+    }
+    devices[size] = device;
+    counts[size] = 0;
+    mins[size] = Long.MAX_VALUE;
+    maxs[size] = Long.MIN_VALUE;
+    sums[size] = 0;
+    return size++;
+  }
+
+  /** Adds {@code other}'s statistics to this one. */
+  public void merge(DeviceAggregator other) {
+    for (int s = 0; s < other.size; s++) {
+      add(slot(other.devices[s]), other.counts[s], other.mins[s], other.maxs[s], other.sums[s]);
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(directSlots, 0);
+    largeSlots = new HeapLongLongMap();
+    size = 0;
+    records = 0;
+  }
+
+  public int deviceCount() {
+    return size;
+  }
+
+  public long records() {
+    return records;
+  }
+
+  /** Seen device ids in ascending order. */
+  public int[] devices() {
+    int[] sorted = Arrays.copyOf(devices, size);
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  public long count(int device) {
+    int slot = find(device);
+    return slot < 0 ? 0 : counts[slot];
+  }
+
+  /** Smallest {@code val} in hundredths, {@code Long.MAX_VALUE} for an unseen device. */
+  public long min(int device) {
+    int slot = find(device);
+    return slot < 0 ? Long.MAX_VALUE : mins[slot];
+  }
+
+  /** Largest {@code val} in hundredths, {@code Long.MIN_VALUE} for an unseen device. */
+  public long max(int device) {
+    int slot = find(device);
+    return slot < 0 ? Long.MIN_VALUE : maxs[slot];
+  }
+
+  /** Sum of {@code val} in hundredths. */
+  public long sum(int device) {
+    int slot = find(device);
+    return slot < 0 ? 0 : sums[slot];
+  }
+
+  private int find(int device) {
+    if (device >= 0 && device < DIRECT_LIMIT) {
+      return device < directSlots.length ? directSlots[device] - 1 : -1;
+    }
+    return (int) largeSlots.getOrDefault(device, -1L);
+  }
+
+  /**
+   * Hash of all statistics that does not depend on the order records or
+   * partial results arrived in, for checking that two runs agree.
+   */
+  public long checksum() {
+    long h = 0;
+    for (int s = 0; s < size; s++) {
+      long x = devices[s];
+      x = x * 31 + counts[s];
+      x = x * 31 + mins[s];
+      x = x * 31 + maxs[s];
+      x = x * 31 + sums[s];
+      h += LongLongMap.mix(x);
+    }
+    return h;
+  }
+}
@@ -0,0 +1,300 @@
+package fi.lauripiispanen.benchmarks.ndjson;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming parser for the newline-delimited records {@code BlobGenerator}
+ * writes:
+ * <pre>
+ *   {"device":"dev_1234","ts":1700000000000,"val":12.34}
+ * </pre>
+ * Fields are expected in this order with no whitespace. The device id is
+ * the number at the end of the device name, {@code val} is read as
+ * hundredths. The generator always writes {@code .}, but {@code ,} is
+ * accepted too for blobs written by older versions that formatted with the
+ * default locale. Lines that do not fit the format, like the clipped last
+ * line of a blob, are counted as malformed and skipped.
+ *
+ * Input can arrive in arbitrary chunks; a record split across chunks is
+ * carried over in a small internal buffer. Nothing is allocated per record
+ * and no {@code String}s are created. Not thread-safe.
+ */
+public final class DeviceRecordParser {
+
+  /** Longer lines are skipped as malformed. */
+  public static final int MAX_LINE_LENGTH = 256;
+
+  private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+  private static final byte[] DEVICE_PREFIX = "{\"device\":\"".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] TS_KEY = ",\"ts\":".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] VAL_KEY = ",\"val\":".getBytes(StandardCharsets.US_ASCII);
+  private static final int MAX_DEVICE_DIGITS = 10;
+  private static final int MAX_TS_DIGITS = 18;
+  private static final int MAX_VAL_DIGITS = 16;
+  private static final long INCOMPLETE = -1;
+
+  private final RecordSink sink;
+  private final MemorySegment carry = MemorySegment.ofArray(new byte[MAX_LINE_LENGTH + 1]);
+  private int carryLength;
+  private boolean skipping;
+  private long records;
+  private long malformed;
+
+  public DeviceRecordParser(RecordSink sink) {
+    this.sink = sink;
+  }
+
+  public void parse(byte[] buf, int off, int len) {
+    parse(MemorySegment.ofArray(buf), off, off + len);
+  }
+
+  /** Consumes the buffer's remaining bytes. */
+  public void parse(ByteBuffer buf) {
+    parse(MemorySegment.ofBuffer(buf), 0, buf.remaining());
+    buf.position(buf.limit());
+  }
+
+  public void parse(MemorySegment segment) {
+    parse(segment, 0, segment.byteSize());
+  }
+
+  public void parse(MemorySegment segment, long from, long to) {
+    long p = from;
+    if (carryLength > 0 || skipping) {
+      p = completeCarried(segment, p, to);
+      if (p < 0) {
+        return;
+      }
+    }
+    while (p < to) {
+      long next = parseRecord(segment, p, to);
+      if (next == INCOMPLETE) {
+        startCarry(segment, p, to);
+        return;
+      }
+      p = next;
+    }
+  }
+
+  /** Parses a final record that has no trailing newline. */
+  public void finish() {
+    if (skipping) {
+      malformed++;
+    } else if (carryLength > 0) {
+      carry.set(BYTE, carryLength, (byte) '\n');
+      parseRecord(carry, 0, carryLength + 1);
+    }
+    carryLength = 0;
+    skipping = false;
+  }
+
+  public void reset() {
+    carryLength = 0;
+    skipping = false;
+    records = 0;
+    malformed = 0;
+  }
+
+  public long records() {
+    return records;
+  }
+
+  public long malformed() {
+    return malformed;
+  }
+
+  private void startCarry(MemorySegment segment, long from, long to) {
+    long n = to - from;
+    if (n > MAX_LINE_LENGTH) {
+      skipping = true;
+    } else {
+      MemorySegment.copy(segment, from, carry, 0, n);
+      carryLength = (int) n;
+    }
+  }
+
+  /**
+   * Appends the rest of the carried line from {@code segment} and parses it.
+   *
+   * @return position after the line, or -1 if {@code segment} ended first
+   */
+  private long completeCarried(MemorySegment segment, long from, long to) {
+    long nl = indexOfNewline(segment, from, to);
+    long end = nl < 0 ? to : nl + 1;
+    if (!skipping) {
+      long n = end - from;
+      // room for the newline, or for the one finish() appends
+      if (carryLength + n > (nl < 0 ? MAX_LINE_LENGTH : MAX_LINE_LENGTH + 1)) {
+        skipping = true;
+        carryLength = 0;
+      } else {
+        MemorySegment.copy(segment, from, carry, carryLength, n);
+        carryLength += (int) n;
+      }
+    }
+    if (nl < 0) {
+      return -1;
+    }
+    if (skipping) {
+      malformed++;
+      skipping = false;
+    } else {
+      parseRecord(carry, 0, carryLength);
+    }
+    carryLength = 0;
+    return end;
+  }
+
+  /**
+   * @return position after the record's newline, or {@link #INCOMPLETE} if
+   *         {@code to} comes first
+   */
+  private long parseRecord(MemorySegment s, long p, long to) {
+    long i = p;
+    for (byte expected : DEVICE_PREFIX) {
+      if (i >= to) {
+        return INCOMPLETE;
+      }
+      if (s.get(BYTE, i) != expected) {
+        return skipLine(s, i, to);
+      }
+      i++;
+    }
+
+    // Device name up to the closing quote; keep its trailing digits
+    long device = 0;
+    int deviceDigits = 0;
+    while (true) {
+      if (i >= to) {
+        return INCOMPLETE;
+      }
+      byte b = s.get(BYTE, i);
+      if (b == '"') {
+        i++;
+        break;
+      }
+      if (b == '\n') {
+        return skipLine(s, i, to);
+      }
+      if (b >= '0' && b <= '9') {
+        device = device * 10 + (b - '0');
+        deviceDigits++;
+      } else {
+        device = 0;
+        deviceDigits = 0;
+      }
+      i++;
+    }
+    if (deviceDigits == 0 || deviceDigits > MAX_DEVICE_DIGITS || device > Integer.MAX_VALUE) {
+      return skipLine(s, i, to);
+    }
+
+    for (byte expected : TS_KEY) {
+      if (i >= to) {
+        return INCOMPLETE;
+      }
+      if (s.get(BYTE, i) != expected) {
+        return skipLine(s, i, to);
+      }
+      i++;
+    }
+    long ts = 0;
+    int tsDigits = 0;
+    byte b;
+    while (true) {
+      if (i >= to) {
+        return INCOMPLETE;
+      }
+      b = s.get(BYTE, i);
+      if (b < '0' || b > '9') {
+        break;
+      }
+      ts = ts * 10 + (b - '0');
+      tsDigits++;
+      i++;
+    }
+    if (tsDigits == 0 || tsDigits > MAX_TS_DIGITS) {
+      return skipLine(s, i, to);
+    }
+
+    for (byte expected : VAL_KEY) {
+      if (i >= to) {
+        return INCOMPLETE;
+      }
+      if (s.get(BYTE, i) != expected) {
+        return skipLine(s, i, to);
+      }
+      i++;
+    }
+    if (i >= to) {
+      return INCOMPLETE;
+    }
+    boolean negative = s.get(BYTE, i) == '-';
+    if (negative) {
+      i++;
+    }
+    long val = 0;
+    int intDigits = 0;
+    int fracDigits = 0;
+    boolean fraction = false;
+    while (true) {
+      if (i >= to) {
+        return INCOMPLETE;
+      }
+      b = s.get(BYTE, i);
+      if (b >= '0' && b <= '9') {
+        if (!fraction) {
+          val = val * 10 + (b - '0');
+          intDigits++;
+        } else if (fracDigits < 2) {
+          val = val * 10 + (b - '0');
+          fracDigits++;
+        }
+      } else if ((b == '.' || b == ',') && !fraction) {
+        fraction = true;
+      } else {
+        break;
+      }
+      i++;
+    }
+    if (intDigits == 0 || intDigits > MAX_VAL_DIGITS || b != '}') {
+      return skipLine(s, i, to);
+    }
+    for (; fracDigits < 2; fracDigits++) {
+      val *= 10;
+    }
+    i++;
+
+    if (i >= to) {
+      return INCOMPLETE;
+    }
+    if (s.get(BYTE, i) != '\n') {
+      return skipLine(s, i, to);
+    }
+
+    records++;
+    sink.accept((int) device, ts, negative ? -val : val);
+    return i + 1;
+  }
+
+  private long skipLine(MemorySegment s, long from, long to) {
+    long nl = indexOfNewline(s, from, to);
+    if (nl < 0) {
+      return INCOMPLETE;
+    }
+    malformed++;
+    return nl + 1;
+  }
+
+  private static long indexOfNewline(MemorySegment s, long from, long to) {
+    for (long i = from; i < to; i++) {
+      if (s.get(BYTE, i) == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,132 @@
+package fi.lauripiispanen.benchmarks.ndjson;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans one large NDJSON file, typically a mapped {@link MemorySegment},
+ * on a {@link ForkJoinPool}.
+ *
+ * The segment is split in half recursively; each split point is moved
+ * forward to just past the next {@code '\n'} so that no record straddles
+ * two tasks. Leaves of at most {@code chunkBytes} are parsed into their own
+ * {@link DeviceAggregator}, and the partial results are merged left to
+ * right up the same tree, so the result never depends on scheduling.
+ *
+ * The segment must be accessible from the pool's threads, i.e. come from a
+ * shared or global arena.
+ */
+public final class ParallelBlobScanner {
+
+  public static final long DEFAULT_CHUNK_BYTES = 8 << 20;
+
+  private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+  private final ForkJoinPool pool;
+  private final long chunkBytes;
+
+  public ParallelBlobScanner(ForkJoinPool pool) {
+    this(pool, DEFAULT_CHUNK_BYTES);
+  }
+
+  public ParallelBlobScanner(ForkJoinPool pool, long chunkBytes) {
+    if (chunkBytes < DeviceRecordParser.MAX_LINE_LENGTH) {
+      throw new IllegalArgumentException("chunkBytes must be at least a line: " + chunkBytes);
+    }
+    this.pool = pool;
+    this.chunkBytes = chunkBytes;
+  }
+
+  /** Parses and aggregates every record in {@code segment}. */
+  public DeviceAggregator aggregate(MemorySegment segment) {
+    return pool.invoke(new AggregateTask(segment, 0, segment.byteSize()));
+  }
+
+  /**
+   * Counts newlines with the same splitting, without parsing; the memory
+   * bandwidth ceiling for {@link #aggregate}.
+   */
+  public long countLines(MemorySegment segment) {
+    return pool.invoke(new CountTask(segment, 0, segment.byteSize()));
+  }
+
+  /**
+   * @return a position in {@code [from, to]} just past a newline, or
+   *         {@code to} if there is none after {@code mid}
+   */
+  private static long splitPoint(MemorySegment segment, long mid, long to) {
+    for (long i = mid; i < to; i++) {
+      if (segment.get(BYTE, i) == '\n') {
+        return i + 1;
+      }
+    }
+    return to;
+  }
+
+  @SuppressWarnings("serial")
+  private final class AggregateTask extends RecursiveTask<DeviceAggregator> {
+    private final MemorySegment segment;
+    private final long from;
+    private final long to;
+
+    AggregateTask(MemorySegment segment, long from, long to) {
+      this.segment = segment;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected DeviceAggregator compute() {
+      if (to - from > chunkBytes) {
+        long mid = splitPoint(segment, from + (to - from) / 2, to);
+        if (mid < to) {
+          AggregateTask right = new AggregateTask(segment, mid, to);
+          right.fork();
+          DeviceAggregator result = new AggregateTask(segment, from, mid).compute();
+          result.merge(right.join());
+          return result;
+        }
+      }
+      DeviceAggregator aggregator = new DeviceAggregator();
+      DeviceRecordParser parser = new DeviceRecordParser(aggregator);
+      parser.parse(segment, from, to);
+      parser.finish();
+      return aggregator;
+    }
+  }
+
+  @SuppressWarnings("serial")
+  private final class CountTask extends RecursiveTask<Long> {
+    private final MemorySegment segment;
+    private final long from;
+    private final long to;
+
+    CountTask(MemorySegment segment, long from, long to) {
+      this.segment = segment;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Long compute() {
+      if (to - from > chunkBytes) {
+        long mid = splitPoint(segment, from + (to - from) / 2, to);
+        if (mid < to) {
+          CountTask right = new CountTask(segment, mid, to);
+          right.fork();
+          long left = new CountTask(segment, from, mid).compute();
+          return left + right.join();
+        }
+      }
+      long lines = 0;
+      for (long i = from; i < to; i++) {
+        if (segment.get(BYTE, i) == '\n') {
+          lines++;
+        }
+      }
+      return lines;
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package fi.lauripiispanen.benchmarks.ndjson;
+
+/**
+ * Receives parsed device records as primitives.
+ */
+@FunctionalInterface
+public interface RecordSink {
+
+  /**
+   * @param device numeric id, {@code 1234} for {@code "dev_1234"}
+   * @param ts     timestamp in epoch millis
+   * @param val    value in hundredths, {@code 1234} for {@code 12.34}
+   */
+  void accept(int device, long ts, long val);
+}
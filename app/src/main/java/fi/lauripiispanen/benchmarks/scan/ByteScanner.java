@@ -0,0 +1,56 @@
+package fi.lauripiispanen.benchmarks.scan;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Counts or finds one byte value in a range of a {@code byte[]},
+ * {@code ByteBuffer} or {@link MemorySegment}; ranges are
+ * {@code [from, to)}.
+ *
+ * Buffers are scanned through their backing array if they have an
+ * accessible one and as a segment otherwise; neither their position nor
+ * their limit is used or changed.
+ */
+public interface ByteScanner {
+
+  int count(byte[] a, int from, int to, byte b);
+
+  long count(MemorySegment s, long from, long to, byte b);
+
+  /** @return index of the first {@code b}, or -1 */
+  int indexOf(byte[] a, int from, int to, byte b);
+
+  /** @return offset of the first {@code b}, or -1 */
+  long indexOf(MemorySegment s, long from, long to, byte b);
+
+  default int count(ByteBuffer buf, int from, int to, byte b) {
+    Objects.checkFromToIndex(from, to, buf.capacity());
+    if (buf.hasArray()) {
+      int base = buf.arrayOffset();
+      return count(buf.array(), base + from, base + to, b);
+    }
+    return (int) count(MemorySegment.ofBuffer(buf.duplicate().clear()), from, to, b);
+  }
+
+  default int indexOf(ByteBuffer buf, int from, int to, byte b) {
+    Objects.checkFromToIndex(from, to, buf.capacity());
+    if (buf.hasArray()) {
+      int base = buf.arrayOffset();
+      int i = indexOf(buf.array(), base + from, base + to, b);
+      return i < 0 ? -1 : i - base;
+    }
+    return (int) indexOf(MemorySegment.ofBuffer(buf.duplicate().clear()), from, to, b);
+  }
+
+  /** {@code scalar}, {@code swar} or {@code vector}. */
+  static ByteScanner of(String mode) {
+    return switch (mode) {
+      case "scalar" -> new ScalarByteScanner();
+      case "swar" -> new SwarByteScanner();
+      case "vector" -> new VectorByteScanner();
+      default -> throw new IllegalArgumentException("unknown scan mode: " + mode);
+    };
+  }
+}
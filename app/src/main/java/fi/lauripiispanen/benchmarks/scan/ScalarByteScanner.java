@@ -0,0 +1,74 @@
+package fi.lauripiispanen.benchmarks.scan;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/** One byte per iteration; the baseline. */
+public final class ScalarByteScanner implements ByteScanner {
+
+  @Override
+  public int count(byte[] a, int from, int to, byte b) {
+    Objects.checkFromToIndex(from, to, a.length);
+    int n = 0;
+    for (int i = from; i < to; i++) {
+      if (a[i] == b)
+        n++;
+    }
+    return n;
+  }
+
+  @Override
+  public long count(MemorySegment s, long from, long to, byte b) {
+    Objects.checkFromToIndex(from, to, s.byteSize());
+    long n = 0;
+    for (long i = from; i < to; i++) {
+      if (s.get(ValueLayout.JAVA_BYTE, i) == b)
+        n++;
+    }
+    return n;
+  }
+
+  @Override
+  public int indexOf(byte[] a, int from, int to, byte b) {
+    Objects.checkFromToIndex(from, to, a.length);
+    for (int i = from; i < to; i++) {
+      if (a[i] == b)
+        return i;
+    }
+    return -1;
+  }
+
+  @Override
+  public long indexOf(MemorySegment s, long from, long to, byte b) {
+    Objects.checkFromToIndex(from, to, s.byteSize());
+    for (long i = from; i < to; i++) {
+      if (s.get(ValueLayout.JAVA_BYTE, i) == b)
+        return i;
+    }
+    return -1;
+  }
+
+  /** Absolute {@code get(i)} per byte, as the hand-written loops do. */
+  @Override
+  public int count(ByteBuffer buf, int from, int to, byte b) {
+    Objects.checkFromToIndex(from, to, buf.capacity());
+    int n = 0;
+    for (int i = from; i < to; i++) {
+      if (buf.get(i) == b)
+        n++;
+    }
+    return n;
+  }
+
+  @Override
+  public int indexOf(ByteBuffer buf, int from, int to, byte b) {
+    Objects.checkFromToIndex(from, to, buf.capacity());
+    for (int i = from; i < to; i++) {
+      if (buf.get(i) == b)
+        return i;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,72 @@
+package fi.lauripiispanen.benchmarks.scan;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * One {@code ByteVector} compare per {@code SPECIES_PREFERRED} lanes (32
+ * with AVX2, 64 with AVX-512); the mask is counted with {@code trueCount}
+ * or searched with {@code firstTrue}. The tail shorter than a vector goes
+ * through {@link SwarByteScanner}.
+ */
+public final class VectorByteScanner implements ByteScanner {
+
+  private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+  private final SwarByteScanner tail = new SwarByteScanner();
+
+  @Override
+  public int count(byte[] a, int from, int to, byte b) {
+    Objects.checkFromToIndex(from, to, a.length);
+    int lanes = SPECIES.length();
+    int n = 0;
+    int i = from;
+    for (; i + lanes <= to; i += lanes) {
+      n += ByteVector.fromArray(SPECIES, a, i).eq(b).trueCount();
+    }
+    return n + tail.count(a, i, to, b);
+  }
+
+  @Override
+  public long count(MemorySegment s, long from, long to, byte b) {
+    Objects.checkFromToIndex(from, to, s.byteSize());
+    int lanes = SPECIES.length();
+    long n = 0;
+    long i = from;
+    for (; i + lanes <= to; i += lanes) {
+      n += ByteVector.fromMemorySegment(SPECIES, s, i, ByteOrder.nativeOrder()).eq(b).trueCount();
+    }
+    return n + tail.count(s, i, to, b);
+  }
+
+  @Override
+  public int indexOf(byte[] a, int from, int to, byte b) {
+    Objects.checkFromToIndex(from, to, a.length);
+    int lanes = SPECIES.length();
+    int i = from;
+    for (; i + lanes <= to; i += lanes) {
+      int first = ByteVector.fromArray(SPECIES, a, i).eq(b).firstTrue();
+      if (first < lanes) {
+        return i + first;
+      }
+    }
+    return tail.indexOf(a, i, to, b);
+  }
+
+  @Override
+  public long indexOf(MemorySegment s, long from, long to, byte b) {
+    Objects.checkFromToIndex(from, to, s.byteSize());
+    int lanes = SPECIES.length();
+    long i = from;
+    for (; i + lanes <= to; i += lanes) {
+      int first = ByteVector.fromMemorySegment(SPECIES, s, i, ByteOrder.nativeOrder()).eq(b).firstTrue();
+      if (first < lanes) {
+        return i + first;
+      }
+    }
+    return tail.indexOf(s, i, to, b);
+  }
+}
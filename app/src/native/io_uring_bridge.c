@@ -0,0 +1,45 @@
+#include <errno.h>
+#include <stdlib.h>
+
+#include "fi_lauripiispanen_benchmarks_io_IoUringBridge.h"
+#include "io_uring_reader.h"
+
+/*
+ * The reads land in a malloc'd buffer and are copied into the Java array
+ * afterwards: pinning it with GetPrimitiveArrayCritical would stall the GC
+ * for the whole blocking io_uring_enter.
+ */
+JNIEXPORT jint JNICALL Java_fi_lauripiispanen_benchmarks_io_IoUringBridge_readOffsets
+  (JNIEnv *env, jclass cls, jstring file_path, jlongArray offsets, jint chunk_size, jint queue_depth,
+   jbyteArray buffer)
+{
+  jsize num_offsets = (*env)->GetArrayLength(env, offsets);
+  if (chunk_size <= 0 || (jlong) num_offsets * chunk_size > (*env)->GetArrayLength(env, buffer)) {
+    return -EINVAL;
+  }
+  size_t buf_size = (size_t) num_offsets * (size_t) chunk_size;
+
+  char *buf = malloc(buf_size > 0 ? buf_size : 1);
+  if (buf == NULL) {
+    return -ENOMEM;
+  }
+  const char *path = (*env)->GetStringUTFChars(env, file_path, NULL);
+  jlong *offs = (*env)->GetLongArrayElements(env, offsets, NULL);
+  if (path == NULL || offs == NULL) {
+    if (path != NULL) {
+      (*env)->ReleaseStringUTFChars(env, file_path, path);
+    }
+    free(buf);
+    return -ENOMEM;
+  }
+
+  int result = read_offsets_io_uring(path, (const long *) offs, num_offsets, chunk_size, queue_depth, buf);
+
+  (*env)->ReleaseLongArrayElements(env, offsets, offs, JNI_ABORT);
+  (*env)->ReleaseStringUTFChars(env, file_path, path);
+  if (result > 0) {
+    (*env)->SetByteArrayRegion(env, buffer, 0, (jsize) buf_size, (const jbyte *) buf);
+  }
+  free(buf);
+  return result;
+}
@@ -0,0 +1,236 @@
+#include "io_uring_reader.h"
+
+#if HAS_IO_URING
+
+#include <errno.h>
+#include <fcntl.h>
+#include <linux/io_uring.h>
+#include <string.h>
+#include <sys/mman.h>
+#include <sys/syscall.h>
+#include <unistd.h>
+
+// Minimal io_uring on raw syscalls, so the library has no liburing dependency.
+
+struct ring {
+  int fd;
+  void *sq_ptr;
+  size_t sq_size;
+  void *cq_ptr;
+  size_t cq_size;
+  struct io_uring_sqe *sqes;
+  size_t sqes_size;
+
+  unsigned *sq_tail;
+  unsigned *sq_mask;
+  unsigned *sq_array;
+  unsigned sq_entries;
+
+  unsigned *cq_head;
+  unsigned *cq_tail;
+  unsigned *cq_mask;
+  struct io_uring_cqe *cqes;
+};
+
+static int ring_setup(struct ring *r, unsigned entries)
+{
+  struct io_uring_params p;
+  memset(&p, 0, sizeof(p));
+  memset(r, 0, sizeof(*r));
+
+  r->fd = (int) syscall(__NR_io_uring_setup, entries, &p);
+  if (r->fd < 0) {
+    return -errno;
+  }
+
+  r->sq_size = p.sq_off.array + p.sq_entries * sizeof(unsigned);
+  r->cq_size = p.cq_off.cqes + p.cq_entries * sizeof(struct io_uring_cqe);
+  if (p.features & IORING_FEAT_SINGLE_MMAP) {
+    // Both rings live in one mapping since 5.4
+    if (r->cq_size > r->sq_size) {
+      r->sq_size = r->cq_size;
+    }
+    r->cq_size = 0;
+  }
+
+  r->sq_ptr = mmap(NULL, r->sq_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+      r->fd, IORING_OFF_SQ_RING);
+  if (r->sq_ptr == MAP_FAILED) {
+    int err = -errno;
+    close(r->fd);
+    return err;
+  }
+
+  if (r->cq_size == 0) {
+    r->cq_ptr = r->sq_ptr;
+  } else {
+    r->cq_ptr = mmap(NULL, r->cq_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+        r->fd, IORING_OFF_CQ_RING);
+    if (r->cq_ptr == MAP_FAILED) {
+      int err = -errno;
+      munmap(r->sq_ptr, r->sq_size);
+      close(r->fd);
+      return err;
+    }
+  }
+
+  r->sqes_size = p.sq_entries * sizeof(struct io_uring_sqe);
+  r->sqes = mmap(NULL, r->sqes_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+      r->fd, IORING_OFF_SQES);
+  if (r->sqes == MAP_FAILED) {
+    int err = -errno;
+    if (r->cq_size != 0) {
+      munmap(r->cq_ptr, r->cq_size);
+    }
+    munmap(r->sq_ptr, r->sq_size);
+    close(r->fd);
+    return err;
+  }
+
+  char *sq = r->sq_ptr;
+  r->sq_tail = (unsigned *) (sq + p.sq_off.tail);
+  r->sq_mask = (unsigned *) (sq + p.sq_off.ring_mask);
+  r->sq_array = (unsigned *) (sq + p.sq_off.array);
+  r->sq_entries = p.sq_entries;
+
+  char *cq = r->cq_ptr;
+  r->cq_head = (unsigned *) (cq + p.cq_off.head);
+  r->cq_tail = (unsigned *) (cq + p.cq_off.tail);
+  r->cq_mask = (unsigned *) (cq + p.cq_off.ring_mask);
+  r->cqes = (struct io_uring_cqe *) (cq + p.cq_off.cqes);
+  return 0;
+}
+
+static void ring_close(struct ring *r)
+{
+  munmap(r->sqes, r->sqes_size);
+  if (r->cq_size != 0) {
+    munmap(r->cq_ptr, r->cq_size);
+  }
+  munmap(r->sq_ptr, r->sq_size);
+  close(r->fd);
+}
+
+static int ring_enter(struct ring *r, unsigned to_submit, unsigned min_complete)
+{
+  int ret;
+  do {
+    ret = (int) syscall(__NR_io_uring_enter, r->fd, to_submit, min_complete,
+        IORING_ENTER_GETEVENTS, NULL, 0);
+  } while (ret < 0 && errno == EINTR);
+  return ret < 0 ? -errno : ret;
+}
+
+/*
+ * Reads chunk_size bytes at each offset into buf_out + i * chunk_size,
+ * keeping up to queue_depth reads in flight. With queue_depth >= num_offsets
+ * every read is submitted with a single io_uring_enter call.
+ *
+ * Returns the total number of bytes read, or a negative errno. Short reads
+ * (at the end of the file) are not retried, like a single pread.
+ */
+int read_offsets_io_uring(const char *path, const long *offsets, int num_offsets, int chunk_size,
+    int queue_depth, char *buf_out)
+{
+  if (num_offsets <= 0) {
+    return 0;
+  }
+  if (queue_depth <= 0 || chunk_size <= 0) {
+    return -EINVAL;
+  }
+
+  int fd = open(path, O_RDONLY);
+  if (fd < 0) {
+    return -errno;
+  }
+
+  struct ring r;
+  unsigned entries = queue_depth < num_offsets ? (unsigned) queue_depth : (unsigned) num_offsets;
+  int err = ring_setup(&r, entries);
+  if (err < 0) {
+    close(fd);
+    return err;
+  }
+
+  long total = 0;
+  int next = 0;
+  int inflight = 0;
+  // Queued in the SQ ring but not yet consumed by the kernel
+  unsigned pending = 0;
+  int completed = 0;
+
+  while (completed < num_offsets) {
+    // Queue as many reads as the ring has room for
+    unsigned tail = *r.sq_tail;
+    while (err == 0 && next < num_offsets && inflight + pending < r.sq_entries) {
+      unsigned index = tail & *r.sq_mask;
+      struct io_uring_sqe *sqe = &r.sqes[index];
+      memset(sqe, 0, sizeof(*sqe));
+      sqe->opcode = IORING_OP_READ;
+      sqe->fd = fd;
+      sqe->off = (unsigned long long) offsets[next];
+      sqe->addr = (unsigned long long) (buf_out + (size_t) next * chunk_size);
+      sqe->len = (unsigned) chunk_size;
+      sqe->user_data = (unsigned long long) next;
+      r.sq_array[index] = index;
+      tail++;
+      pending++;
+      next++;
+    }
+    __atomic_store_n(r.sq_tail, tail, __ATOMIC_RELEASE);
+
+    // The kernel may consume fewer SQEs than offered (it stops at one that
+    // fails), and then returns without waiting; the rest stay pending
+    int ret = ring_enter(&r, pending, 1);
+    if (ret < 0) {
+      // Not recoverable; closing the ring cancels whatever is still in flight
+      err = ret;
+      break;
+    }
+    pending -= (unsigned) ret;
+    inflight += ret;
+    if (ret == 0 && pending > 0) {
+      if (inflight == 0) {
+        err = -EAGAIN;
+        break;
+      }
+      // Nothing was taken; wait for a read in flight instead of spinning
+      ret = ring_enter(&r, 0, 1);
+      if (ret < 0) {
+        err = ret;
+        break;
+      }
+    }
+
+    unsigned head = *r.cq_head;
+    unsigned cq_tail = __atomic_load_n(r.cq_tail, __ATOMIC_ACQUIRE);
+    while (head != cq_tail) {
+      struct io_uring_cqe *cqe = &r.cqes[head & *r.cq_mask];
+      if (cqe->res < 0) {
+        if (err == 0) {
+          err = cqe->res;
+        }
+      } else {
+        total += cqe->res;
+      }
+      head++;
+      inflight--;
+      completed++;
+    }
+    __atomic_store_n(r.cq_head, head, __ATOMIC_RELEASE);
+
+    if (err != 0 && inflight == 0) {
+      break;
+    }
+  }
+
+  ring_close(&r);
+  close(fd);
+
+  if (err != 0) {
+    return err;
+  }
+  return total > 0x7fffffffL ? -EOVERFLOW : (int) total;
+}
+
+#endif
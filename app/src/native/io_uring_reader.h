@@ -3,6 +3,7 @@
 
 #include "platform.h"
 
-int read_offsets_io_uring(const char *path, const long *offsets, int num_offsets, int chunk_size, char *buf_out);
+int read_offsets_io_uring(const char *path, const long *offsets, int num_offsets, int chunk_size,
+    int queue_depth, char *buf_out);
 
 #endif // IO_URING_READER_H
\ No newline at end of file